@@ -0,0 +1,88 @@
+package com.udacity.benchmarks;
+
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.Details;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.lang.reflect.Proxy;
+import java.util.Optional;
+import java.util.function.LongFunction;
+
+/**
+ * Shared test doubles for the vehicles-api benchmarks: sample cars, a
+ * repository that builds them on demand, and WebClients answered in
+ * memory so no network is involved.
+ */
+public final class VehicleFixtures {
+
+    public static final String PRICE_JSON = "{\"currency\":\"USD\",\"price\":19385.43,\"vehicleId\":1}";
+    public static final String ADDRESS_JSON =
+            "{\"address\":\"777 Brockton Avenue\",\"city\":\"Abington\",\"state\":\"MA\",\"zip\":\"2351\"}";
+
+    private VehicleFixtures() {
+    }
+
+    /**
+     * @param id ID of the car
+     * @return a car at a location unique to its ID, for IDs below a million
+     */
+    public static Car car(long id) {
+        Car car = new Car();
+        car.setId(id);
+        car.setVersion(0L);
+        car.setCondition(Condition.USED);
+        car.setLocation(new Location(25 + (id % 1000) * 0.01, -120 + (id / 1000 % 1000) * 0.01));
+        Details details = new Details();
+        details.setManufacturer(new Manufacturer(101, "Chevrolet"));
+        details.setModel("Impala");
+        details.setMileage(32280);
+        details.setExternalColor("white");
+        details.setBody("sedan");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        return car;
+    }
+
+    /**
+     * @param cars builds the car returned for an ID
+     * @return a repository that only supports findById
+     */
+    public static CarRepository repository(LongFunction<Car> cars) {
+        return (CarRepository) Proxy.newProxyInstance(CarRepository.class.getClassLoader(),
+                new Class<?>[]{CarRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findById")) {
+                        return Optional.of(cars.apply((Long) args[0]));
+                    }
+                    if (method.getDeclaringClass() == Object.class) {
+                        return method.invoke(cars, args);
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+    }
+
+    /**
+     * @param json the body every request is answered with
+     * @return a WebClient that answers every request with 200 and the body
+     */
+    public static WebClient stubClient(String json) {
+        return WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(json)
+                        .build()))
+                .build();
+    }
+}
@@ -0,0 +1,47 @@
+package com.udacity.benchmarks.load;
+
+import java.lang.management.ManagementFactory;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Bytes allocated by every thread of this JVM between two points, which
+ * covers the vehicles-api, the stubs and the load generator together.
+ * Threads that end in between are not counted, so pools should be warm.
+ */
+final class AllocationMeter {
+
+    private final com.sun.management.ThreadMXBean threads =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    private Map<Long, Long> start = new HashMap<>();
+
+    /**
+     * Marks the start of a measurement.
+     */
+    void start() {
+        start = allocated();
+    }
+
+    /**
+     * @return bytes allocated since {@link #start()}
+     */
+    long stop() {
+        long total = 0;
+        for (Map.Entry<Long, Long> thread : allocated().entrySet()) {
+            total += thread.getValue() - start.getOrDefault(thread.getKey(), 0L);
+        }
+        return total;
+    }
+
+    private Map<Long, Long> allocated() {
+        long[] ids = threads.getAllThreadIds();
+        long[] bytes = threads.getThreadAllocatedBytes(ids);
+        Map<Long, Long> allocated = new HashMap<>(ids.length * 2);
+        for (int i = 0; i < ids.length; i++) {
+            if (bytes[i] >= 0) {
+                allocated.put(ids[i], bytes[i]);
+            }
+        }
+        return allocated;
+    }
+}
@@ -0,0 +1,148 @@
+package com.udacity.benchmarks.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.udacity.vehicles.constants.ApplicationConstants.PRICE_UNAVAILABLE;
+
+/**
+ * Issues /cars requests against a running vehicles-api. Reads and updates
+ * go to the cars seeded before the run, which are never deleted; deletes
+ * only remove cars created during the run, so every request targets a car
+ * that exists. Each created car gets a location of its own, so its
+ * address is not already cached.
+ */
+final class CarTraffic {
+
+    private static final String CAR_JSON = "{\"condition\":\"USED\",\"details\":{\"body\":\"sedan\",\"model\":\"Impala\","
+            + "\"manufacturer\":{\"code\":101,\"name\":\"Chevrolet\"},\"numberOfDoors\":4,\"fuelType\":\"Gasoline\","
+            + "\"engine\":\"3.6L V6\",\"mileage\":%d,\"modelYear\":2018,\"productionYear\":2018,\"externalColor\":\"white\"},"
+            + "\"location\":{\"lat\":%.6f,\"lon\":%.6f}}";
+    private static final int PAGE_SIZE = 20;
+
+    /**
+     * Outcome of one request: "degraded" means the vehicles-api answered,
+     * but with the fallback price because pricing could not.
+     */
+    enum Outcome { OK, DEGRADED, ERROR }
+
+    private final HttpClient client;
+    private final URI cars;
+    private final Duration timeout;
+    private final long[] seeded;
+    private final Queue<Long> created = new ConcurrentLinkedQueue<>();
+    private final AtomicLong locations = new AtomicLong();
+
+    /**
+     * @param client the client to send requests with
+     * @param baseUri where the vehicles-api listens
+     * @param timeout how long to wait for each response
+     * @param seedCount number of cars to create before the run
+     * @throws IOException if the cars cannot be created
+     * @throws InterruptedException if interrupted while seeding
+     */
+    CarTraffic(HttpClient client, URI baseUri, Duration timeout, int seedCount) throws IOException, InterruptedException {
+        this.client = client;
+        this.cars = baseUri.resolve("/cars");
+        this.timeout = timeout;
+        seeded = new long[seedCount];
+        for (int i = 0; i < seedCount; i++) {
+            HttpResponse<String> response = send(HttpRequest.newBuilder(cars).POST(body(0)));
+            if (response.statusCode() != 201) {
+                throw new IOException("Could not seed cars: " + response.statusCode() + " " + response.body());
+            }
+            seeded[i] = id(response);
+        }
+    }
+
+    /**
+     * @param random source of randomness
+     * @return the next operation to run; a delete is replaced by a create
+     *   while no created car is left to delete
+     */
+    Operation next(Random random) {
+        Operation operation = Operation.pick(random);
+        return operation == Operation.DELETE && created.isEmpty() ? Operation.POST : operation;
+    }
+
+    /**
+     * @param operation the kind of request to send
+     * @param random source of randomness
+     * @return how the request went
+     */
+    Outcome execute(Operation operation, Random random) {
+        try {
+            HttpResponse<String> response;
+            switch (operation) {
+                case GET:
+                    response = send(HttpRequest.newBuilder(car(seededId(random))).GET());
+                    break;
+                case LIST:
+                    URI page = URI.create(cars + "?size=" + PAGE_SIZE + "&after=" + (seededId(random) - 1));
+                    response = send(HttpRequest.newBuilder(page).GET());
+                    break;
+                case POST:
+                    response = send(HttpRequest.newBuilder(cars).POST(body(random.nextInt(100_000))));
+                    if (response.statusCode() == 201) {
+                        created.add(id(response));
+                    }
+                    break;
+                case PUT:
+                    response = send(HttpRequest.newBuilder(car(seededId(random))).PUT(body(random.nextInt(100_000))));
+                    break;
+                case DELETE:
+                    Long id = created.poll();
+                    if (id == null) {
+                        return Outcome.OK;
+                    }
+                    response = send(HttpRequest.newBuilder(car(id)).DELETE());
+                    break;
+                default:
+                    throw new IllegalArgumentException(operation.name());
+            }
+            if (response.statusCode() >= 400) {
+                return Outcome.ERROR;
+            }
+            return response.body().contains(PRICE_UNAVAILABLE) ? Outcome.DEGRADED : Outcome.OK;
+        } catch (IOException e) {
+            return Outcome.ERROR;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Outcome.ERROR;
+        }
+    }
+
+    private HttpResponse<String> send(HttpRequest.Builder request) throws IOException, InterruptedException {
+        return client.send(request.timeout(timeout).header("Content-Type", "application/json").build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest.BodyPublisher body(int mileage) {
+        long location = locations.getAndIncrement();
+        return HttpRequest.BodyPublishers.ofString(String.format(Locale.ROOT, CAR_JSON, mileage,
+                25 + (location % 2000) * 0.01, -120 + (location / 2000 % 2000) * 0.01));
+    }
+
+    private long seededId(Random random) {
+        return seeded[random.nextInt(seeded.length)];
+    }
+
+    private URI car(long id) {
+        return URI.create(cars + "/" + id);
+    }
+
+    private static long id(HttpResponse<?> response) throws IOException {
+        String location = response.headers().firstValue("Location")
+                .orElseThrow(() -> new IOException("Created car has no Location"));
+        return Long.parseLong(location.substring(location.lastIndexOf('/') + 1));
+    }
+}
@@ -0,0 +1,93 @@
+package com.udacity.benchmarks.load;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Stub pricing service and Boogle Maps, answering the requests the
+ * vehicles-api clients make with the same JSON the real services return.
+ * Prices are derived from the vehicle ID so repeated reads agree.
+ */
+final class Dependencies {
+
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+    private static final String ADDRESS =
+            "{\"address\":\"777 Brockton Avenue\",\"city\":\"Abington\",\"state\":\"MA\",\"zip\":\"2351\"}";
+
+    private Dependencies() {
+    }
+
+    /**
+     * @return a started stand-in for the pricing service
+     * @throws IOException if no port can be bound
+     */
+    static StubServer pricing() throws IOException {
+        return new StubServer("pricing").route("/services/price", (exchange, body) -> {
+            String path = exchange.getRequestURI().getPath();
+            String query = exchange.getRequestURI().getQuery();
+            switch (exchange.getRequestMethod()) {
+                case "GET":
+                    if (path.endsWith("/getPrices")) {
+                        List<String> prices = new ArrayList<>();
+                        for (long vehicleId : longParams(query, "vehicleList")) {
+                            prices.add(price(vehicleId, null));
+                        }
+                        return "[" + String.join(",", prices) + "]";
+                    }
+                    return price(longParams(query, "vehicleId").get(0), null);
+                case "PUT":
+                    long vehicleId = Long.parseLong(path.substring(path.lastIndexOf('/') + 1));
+                    JsonNode requested = MAPPER.readTree(body).get("price");
+                    return price(vehicleId, requested != null ? requested.asText() : null);
+                case "DELETE":
+                    return "\"Deleted\"";
+                default:
+                    throw new IOException("Unexpected pricing request " + exchange.getRequestMethod() + " " + path);
+            }
+        }).start();
+    }
+
+    /**
+     * @return a started stand-in for Boogle Maps
+     * @throws IOException if no port can be bound
+     */
+    static StubServer maps() throws IOException {
+        return new StubServer("maps").route("/maps", (exchange, body) -> {
+            if (exchange.getRequestURI().getPath().startsWith("/maps/batch")) {
+                int count = MAPPER.readTree(body).size();
+                List<String> addresses = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    addresses.add(ADDRESS);
+                }
+                return "[" + String.join(",", addresses) + "]";
+            }
+            return ADDRESS;
+        }).start();
+    }
+
+    private static String price(long vehicleId, String amount) {
+        String price = amount != null ? amount : (10000 + vehicleId % 5000) + ".00";
+        return "{\"currency\":\"USD\",\"price\":" + price + ",\"vehicleId\":" + vehicleId + "}";
+    }
+
+    /**
+     * Reads every value of a parameter, whether repeated or comma-separated.
+     */
+    private static List<Long> longParams(String query, String name) {
+        List<Long> values = new ArrayList<>();
+        if (query != null) {
+            for (String param : query.split("&")) {
+                if (param.startsWith(name + "=")) {
+                    for (String value : param.substring(name.length() + 1).split(",")) {
+                        values.add(Long.parseLong(value));
+                    }
+                }
+            }
+        }
+        return values;
+    }
+}
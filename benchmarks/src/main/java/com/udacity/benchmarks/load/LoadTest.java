@@ -0,0 +1,183 @@
+package com.udacity.benchmarks.load;
+
+import com.udacity.benchmarks.load.StubServer.Faults;
+import com.udacity.vehicles.VehiclesApiApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * End-to-end load test of the vehicles-api. Starts the application
+ * in-process, without Eureka, against loopback stubs for the pricing
+ * service and Boogle Maps, then drives mixed /cars traffic through each
+ * scenario and prints throughput, latency percentiles and allocation.
+ * <pre>
+ * java -cp target/benchmarks.jar com.udacity.benchmarks.load.LoadTest [name=value ...]
+ * </pre>
+ * Options, with their defaults:
+ * <ul>
+ * <li>scenarios=all: comma-separated names from {@link #SCENARIOS}</li>
+ * <li>threads=32: concurrent clients</li>
+ * <li>rate=0: total requests per second; 0 sends each request as soon as
+ * the previous one returns</li>
+ * <li>warmup=10 and duration=30: seconds per scenario</li>
+ * <li>cars=500: cars created before the first scenario</li>
+ * <li>timeout=30: seconds to wait for a response</li>
+ * </ul>
+ * With a rate set, each latency is measured from when the request was
+ * due rather than when it was sent, so time spent queued behind a slow
+ * response is counted instead of hidden.
+ */
+public final class LoadTest {
+
+    /**
+     * Scenarios by name, each as the faults of pricing, then of maps.
+     * Stalls outlast the client timeouts set in loadtest.properties.
+     */
+    static final Map<String, Faults[]> SCENARIOS = new LinkedHashMap<>();
+
+    static {
+        SCENARIOS.put("baseline", new Faults[]{Faults.NONE, Faults.NONE});
+        SCENARIOS.put("slow", new Faults[]{new Faults(20, 30, 0, 0, 0), new Faults(20, 30, 0, 0, 0)});
+        SCENARIOS.put("flaky", new Faults[]{new Faults(5, 5, 0.1, 0, 0), new Faults(5, 5, 0.1, 0, 0)});
+        SCENARIOS.put("stalls", new Faults[]{new Faults(5, 5, 0, 0.02, 1000), new Faults(5, 5, 0, 0.02, 1000)});
+        SCENARIOS.put("pricing-down", new Faults[]{new Faults(0, 0, 1, 0, 0), Faults.NONE});
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Map<String, String> options = new HashMap<>();
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals < 0) {
+                System.err.println("Options are name=value, got: " + arg);
+                System.exit(2);
+            }
+            options.put(arg.substring(0, equals), arg.substring(equals + 1));
+        }
+        List<String> scenarios = new ArrayList<>(SCENARIOS.keySet());
+        if (!options.getOrDefault("scenarios", "all").equals("all")) {
+            scenarios = List.of(options.get("scenarios").split(","));
+            for (String scenario : scenarios) {
+                if (!SCENARIOS.containsKey(scenario)) {
+                    System.err.println("Unknown scenario " + scenario + "; known: " + SCENARIOS.keySet());
+                    System.exit(2);
+                }
+            }
+        }
+        int threads = Integer.parseInt(options.getOrDefault("threads", "32"));
+        double rate = Double.parseDouble(options.getOrDefault("rate", "0"));
+        long warmup = Long.parseLong(options.getOrDefault("warmup", "10"));
+        long duration = Long.parseLong(options.getOrDefault("duration", "30"));
+        int cars = Integer.parseInt(options.getOrDefault("cars", "500"));
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.getOrDefault("timeout", "30")));
+
+        try (StubServer pricing = Dependencies.pricing();
+             StubServer maps = Dependencies.maps();
+             ConfigurableApplicationContext vehicles = startVehicles(pricing.port(), maps.port())) {
+            String port = vehicles.getEnvironment().getProperty("local.server.port");
+            HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+            CarTraffic traffic = new CarTraffic(client, URI.create("http://localhost:" + port), timeout, cars);
+            ExecutorService workers = Executors.newFixedThreadPool(threads);
+            AllocationMeter allocation = new AllocationMeter();
+            try {
+                for (String scenario : scenarios) {
+                    Faults[] faults = SCENARIOS.get(scenario);
+                    pricing.setFaults(faults[0]);
+                    maps.setFaults(faults[1]);
+                    System.out.printf("%n== %s: pricing %s; maps %s%n", scenario, faults[0], faults[1]);
+
+                    run(traffic, workers, threads, rate, TimeUnit.SECONDS.toNanos(warmup));
+                    allocation.start();
+                    long started = System.nanoTime();
+                    Recording recording = run(traffic, workers, threads, rate, TimeUnit.SECONDS.toNanos(duration));
+                    double seconds = (System.nanoTime() - started) / 1e9;
+                    long bytes = allocation.stop();
+
+                    recording.print(System.out, seconds);
+                    System.out.printf("allocated %.1f MB/s, %.1f KB per request%n",
+                            bytes / seconds / (1 << 20), recording.count() == 0 ? 0.0 : bytes / 1024.0 / recording.count());
+                }
+            } finally {
+                workers.shutdownNow();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startVehicles(int pricingPort, int mapsPort) {
+        return new SpringApplicationBuilder(VehiclesApiApplication.class)
+                .properties("spring.config.additional-location=classpath:/loadtest.properties",
+                        "maps.endpoint=http://localhost:" + mapsPort,
+                        "pricing-service.ribbon.listOfServers=localhost:" + pricingPort)
+                .run();
+    }
+
+    /**
+     * Runs the traffic on every worker for the given time.
+     * @return what the workers recorded, merged
+     */
+    private static Recording run(CarTraffic traffic, ExecutorService workers, int threads, double rate, long nanos)
+            throws Exception {
+        long interval = rate > 0 ? (long) (threads * 1e9 / rate) : 0;
+        long start = System.nanoTime();
+        long end = start + nanos;
+        List<Future<Recording>> results = new ArrayList<>(threads);
+        for (int worker = 0; worker < threads; worker++) {
+            long first = start + (interval * worker / threads);
+            long seed = System.nanoTime() + worker;
+            results.add(workers.submit(() -> drive(traffic, new Random(seed), first, interval, end)));
+        }
+        Recording merged = new Recording();
+        for (Future<Recording> result : results) {
+            merged.add(result.get());
+        }
+        return merged;
+    }
+
+    /**
+     * Sends requests back to back, or one every interval when it is set,
+     * until the end time.
+     */
+    private static Recording drive(CarTraffic traffic, Random random, long first, long interval, long end) {
+        Recording recording = new Recording();
+        long due = first;
+        while (!Thread.currentThread().isInterrupted()) {
+            long now = System.nanoTime();
+            if (interval > 0) {
+                if (due >= end) {
+                    break;
+                }
+                while (now < due) {
+                    LockSupport.parkNanos(due - now);
+                    now = System.nanoTime();
+                }
+            } else {
+                if (now >= end) {
+                    break;
+                }
+                due = now;
+            }
+            Operation operation = traffic.next(random);
+            CarTraffic.Outcome outcome = traffic.execute(operation, random);
+            recording.record(operation, outcome, System.nanoTime() - due);
+            due += interval;
+        }
+        return recording;
+    }
+}
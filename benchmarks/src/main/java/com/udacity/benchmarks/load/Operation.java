@@ -0,0 +1,37 @@
+package com.udacity.benchmarks.load;
+
+import java.util.Random;
+
+/**
+ * Kinds of request in the /cars traffic mix, with their share of it.
+ */
+enum Operation {
+    GET(60),
+    LIST(10),
+    POST(15),
+    PUT(10),
+    DELETE(5);
+
+    private static final int TOTAL_WEIGHT = 100;
+
+    private final int weight;
+
+    Operation(int weight) {
+        this.weight = weight;
+    }
+
+    /**
+     * @param random source of randomness
+     * @return an operation drawn according to the weights
+     */
+    static Operation pick(Random random) {
+        int draw = random.nextInt(TOTAL_WEIGHT);
+        for (Operation operation : values()) {
+            draw -= operation.weight;
+            if (draw < 0) {
+                return operation;
+            }
+        }
+        return GET;
+    }
+}
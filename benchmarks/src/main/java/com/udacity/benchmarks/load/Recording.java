@@ -0,0 +1,85 @@
+package com.udacity.benchmarks.load;
+
+import org.HdrHistogram.Histogram;
+
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Latencies and outcomes of the requests of one scenario, per operation.
+ * Each worker records into its own instance; they are merged at the end.
+ * Latencies are kept in microseconds with three significant digits.
+ */
+final class Recording {
+
+    private static final long HIGHEST_MICROS = TimeUnit.MINUTES.toMicros(10);
+
+    private final Histogram[] latencies = new Histogram[Operation.values().length];
+    private final long[] degraded = new long[latencies.length];
+    private final long[] errors = new long[latencies.length];
+
+    Recording() {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i] = new Histogram(HIGHEST_MICROS, 3);
+        }
+    }
+
+    void record(Operation operation, CarTraffic.Outcome outcome, long nanos) {
+        int i = operation.ordinal();
+        latencies[i].recordValue(Math.min(TimeUnit.NANOSECONDS.toMicros(nanos), HIGHEST_MICROS));
+        if (outcome == CarTraffic.Outcome.DEGRADED) {
+            degraded[i]++;
+        } else if (outcome == CarTraffic.Outcome.ERROR) {
+            errors[i]++;
+        }
+    }
+
+    void add(Recording other) {
+        for (int i = 0; i < latencies.length; i++) {
+            latencies[i].add(other.latencies[i]);
+            degraded[i] += other.degraded[i];
+            errors[i] += other.errors[i];
+        }
+    }
+
+    long count() {
+        long count = 0;
+        for (Histogram histogram : latencies) {
+            count += histogram.getTotalCount();
+        }
+        return count;
+    }
+
+    /**
+     * Prints one line per operation and one for all of them together.
+     * @param out where to print
+     * @param seconds length of the measurement
+     */
+    void print(PrintStream out, double seconds) {
+        out.printf("%-8s %9s %9s %9s %9s %9s %9s %9s %9s%n",
+                "op", "count", "req/s", "degraded", "errors", "p50 ms", "p99 ms", "p999 ms", "max ms");
+        Histogram all = new Histogram(HIGHEST_MICROS, 3);
+        long allDegraded = 0;
+        long allErrors = 0;
+        for (Operation operation : Operation.values()) {
+            int i = operation.ordinal();
+            print(out, operation.name(), latencies[i], degraded[i], errors[i], seconds);
+            all.add(latencies[i]);
+            allDegraded += degraded[i];
+            allErrors += errors[i];
+        }
+        print(out, "all", all, allDegraded, allErrors, seconds);
+    }
+
+    private static void print(PrintStream out, String name, Histogram histogram, long degraded, long errors,
+                              double seconds) {
+        out.printf("%-8s %9d %9.1f %9d %9d %9.2f %9.2f %9.2f %9.2f%n", name, histogram.getTotalCount(),
+                histogram.getTotalCount() / seconds, degraded, errors,
+                millis(histogram.getValueAtPercentile(50)), millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)), millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+}
@@ -0,0 +1,158 @@
+package com.udacity.benchmarks.load;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loopback HTTP server standing in for a remote dependency. Every request
+ * is first delayed and possibly failed according to the current
+ * {@link Faults}, which can be changed between scenarios while the server
+ * runs. Handlers sleep on their own thread, so injected latency holds
+ * connections the way a slow service would, without limiting throughput.
+ */
+final class StubServer implements AutoCloseable {
+
+    /**
+     * Produces the JSON body for a request that was not failed.
+     */
+    @FunctionalInterface
+    interface Responder {
+        String respond(HttpExchange exchange, byte[] body) throws IOException;
+    }
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private volatile Faults faults = Faults.NONE;
+
+    /**
+     * @param name used to name the handler threads
+     * @throws IOException if no loopback port can be bound
+     */
+    StubServer(String name) throws IOException {
+        AtomicInteger threads = new AtomicInteger();
+        executor = Executors.newCachedThreadPool(task -> {
+            Thread thread = new Thread(task, name + "-stub-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 1024);
+        server.setExecutor(executor);
+    }
+
+    /**
+     * @param path prefix of the request paths handled
+     * @param responder produces the response for those requests
+     * @return this server
+     */
+    StubServer route(String path, Responder responder) {
+        server.createContext(path, exchange -> {
+            try {
+                handle(exchange, responder);
+            } finally {
+                exchange.close();
+            }
+        });
+        return this;
+    }
+
+    StubServer start() {
+        server.start();
+        return this;
+    }
+
+    /**
+     * @return the port the server listens on, on the loopback address
+     */
+    int port() {
+        return server.getAddress().getPort();
+    }
+
+    void setFaults(Faults faults) {
+        this.faults = faults;
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange, Responder responder) throws IOException {
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        Faults current = faults;
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long delay = current.latencyMillis + (current.jitterMillis > 0 ? random.nextLong(current.jitterMillis + 1) : 0);
+        if (current.stallRate > 0 && random.nextDouble() < current.stallRate) {
+            delay += current.stallMillis;
+        }
+        if (delay > 0) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(delay);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+        if (current.errorRate > 0 && random.nextDouble() < current.errorRate) {
+            send(exchange, 503, "{\"message\":\"injected failure\"}");
+            return;
+        }
+        send(exchange, 200, responder.respond(exchange, body));
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Latency and errors injected into every response.
+     */
+    static final class Faults {
+
+        static final Faults NONE = new Faults(0, 0, 0, 0, 0);
+
+        final long latencyMillis;
+        final long jitterMillis;
+        final double errorRate;
+        final double stallRate;
+        final long stallMillis;
+
+        /**
+         * @param latencyMillis fixed delay before every response
+         * @param jitterMillis upper bound of a uniformly random extra delay
+         * @param errorRate fraction of requests answered with 503
+         * @param stallRate fraction of requests delayed by stallMillis more,
+         *   to push calls past the client timeouts
+         * @param stallMillis extra delay of a stalled request
+         */
+        Faults(long latencyMillis, long jitterMillis, double errorRate, double stallRate, long stallMillis) {
+            this.latencyMillis = latencyMillis;
+            this.jitterMillis = jitterMillis;
+            this.errorRate = errorRate;
+            this.stallRate = stallRate;
+            this.stallMillis = stallMillis;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("latency %d+%dms, errors %.1f%%, stalls %.1f%% of %dms",
+                    latencyMillis, jitterMillis, errorRate * 100, stallRate * 100, stallMillis);
+        }
+    }
+}
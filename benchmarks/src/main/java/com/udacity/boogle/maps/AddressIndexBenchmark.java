@@ -0,0 +1,55 @@
+package com.udacity.boogle.maps;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures nearest-address lookup latency against the size of the index.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AddressIndexBenchmark {
+
+    @Param({"1000", "100000", "1000000", "5000000"})
+    private int size;
+
+    private AddressIndex index;
+
+    @Setup
+    public void setup() {
+        Random random = new Random(size);
+        double[] lats = new double[size];
+        double[] lons = new double[size];
+        Address[] addresses = new Address[size];
+        Address address = new Address("1 Main St", "Springfield", "MA", "1101");
+        for (int i = 0; i < size; i++) {
+            lats[i] = 25 + random.nextDouble() * 24;
+            lons[i] = -124 + random.nextDouble() * 57;
+            addresses[i] = address;
+        }
+        index = InMemoryAddressIndex.build(lats, lons, addresses, size);
+    }
+
+    @Benchmark
+    public Address nearest() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        return index.nearest(25 + random.nextDouble() * 24, -124 + random.nextDouble() * 57);
+    }
+}
@@ -0,0 +1,95 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures writing one price into a PriceTable holding the given number
+ * of prices, which publishes a new snapshot per write, and reading one.
+ * The same operations on a ConcurrentHashMap are measured alongside, as
+ * the baseline the table has to beat, together with what each costs to
+ * hand out a consistent view of every price: taking a snapshot of the
+ * table, and copying the map.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PriceTableBenchmark {
+
+    @Param({"1000", "100000", "1000000"})
+    private int prices;
+
+    private PriceTable table;
+
+    private Map<Long, Price> map;
+
+    private Price price;
+
+    @Setup
+    public void setup() {
+        List<Price> stored = new ArrayList<>(prices);
+        map = new ConcurrentHashMap<>(prices);
+        for (long vehicleId = 1; vehicleId <= prices; vehicleId++) {
+            Price price = new Price(vehicleId, "USD", BigDecimal.valueOf(10000 + vehicleId, 2));
+            stored.add(price);
+            map.put(vehicleId, price);
+        }
+        table = new PriceTable(10000);
+        table.load(stored);
+        price = new Price(1L, "USD", new BigDecimal("100.00"));
+    }
+
+    @Benchmark
+    public void put() {
+        price.setVehicleId(ThreadLocalRandom.current().nextLong(1, prices + 1));
+        table.put(price);
+    }
+
+    @Benchmark
+    public Price get() {
+        return table.get(ThreadLocalRandom.current().nextLong(1, prices + 1));
+    }
+
+    @Benchmark
+    public PriceSnapshot snapshot() {
+        return table.snapshot();
+    }
+
+    @Benchmark
+    public void mapPut() {
+        long vehicleId = ThreadLocalRandom.current().nextLong(1, prices + 1);
+        map.put(vehicleId, new Price(vehicleId, price.getCurrency(), price.getPrice()));
+    }
+
+    @Benchmark
+    public Price mapGet() {
+        return map.get(ThreadLocalRandom.current().nextLong(1, prices + 1));
+    }
+
+    @Benchmark
+    public Map<Long, Price> mapCopy() {
+        return new HashMap<>(map);
+    }
+}
@@ -0,0 +1,90 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.PricingServiceApplication;
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceOutcome;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares writing the given number of prices one at a time, as repeated
+ * PUT /services/price/{vehicleId} requests do, with writing them in one
+ * bulk request. Both run against the pricing service's own H2 database,
+ * in a context started without a web server, and overwrite the same
+ * vehicles on every invocation.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBulkWriteBenchmark {
+
+    @Param({"100", "1000"})
+    private int items;
+
+    private ConfigurableApplicationContext context;
+
+    private PricingService pricingService;
+
+    private List<Price> prices;
+
+    @Setup
+    public void setup() {
+        context = new SpringApplicationBuilder(PricingServiceApplication.class)
+                .web(WebApplicationType.NONE)
+                // The application.properties on this classpath is the vehicles-api's; read none
+                .properties("spring.config.name=none",
+                        "spring.application.name=pricing-service",
+                        "spring.cloud.config.enabled=false",
+                        "spring.datasource.url=jdbc:h2:mem:bulkbench",
+                        "spring.datasource.initialization-mode=never",
+                        "eureka.client.enabled=false",
+                        "spring.sleuth.sampler.probability=0",
+                        "logging.level.root=WARN")
+                .run();
+        pricingService = context.getBean(PricingService.class);
+        prices = new ArrayList<>(items);
+        for (long vehicleId = 1; vehicleId <= items; vehicleId++) {
+            prices.add(new Price(vehicleId, "USD", BigDecimal.valueOf(10000 + vehicleId, 2)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public void perRow(Blackhole blackhole) {
+        for (Price price : prices) {
+            blackhole.consume(pricingService.setNewPrice(price.getVehicleId(), price.getCurrency(), Optional.of(price.getPrice())));
+        }
+    }
+
+    @Benchmark
+    public List<PriceOutcome> bulk() {
+        return pricingService.setPrices(prices);
+    }
+}
@@ -0,0 +1,62 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.lang.reflect.Proxy;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures PricingService.getPrice for vehicles picked at random among
+ * the given number of stored prices, answered from the price table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PricingServiceBenchmark {
+
+    @Param({"20", "100000"})
+    private int prices;
+
+    private PricingService pricingService;
+
+    @Setup
+    public void setup() {
+        List<Price> stored = new ArrayList<>(prices);
+        for (long vehicleId = 1; vehicleId <= prices; vehicleId++) {
+            stored.add(new Price(vehicleId, "USD", BigDecimal.valueOf(10000 + vehicleId, 2)));
+        }
+        PriceRepository repository = (PriceRepository) Proxy.newProxyInstance(PriceRepository.class.getClassLoader(),
+                new Class<?>[]{PriceRepository.class}, (proxy, method, args) -> {
+                    if (method.getName().equals("findAll")) {
+                        return stored;
+                    }
+                    throw new UnsupportedOperationException(method.getName());
+                });
+        pricingService = new PricingService(repository, null, null, null, 1000, 10000, 24);
+        pricingService.warm();
+    }
+
+    @Benchmark
+    public Price getPrice() {
+        return pricingService.getPrice(ThreadLocalRandom.current().nextLong(1, prices + 1));
+    }
+}
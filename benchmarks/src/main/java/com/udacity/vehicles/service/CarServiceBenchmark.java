@@ -0,0 +1,63 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.benchmarks.VehicleFixtures;
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.car.Car;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures CarService.findById: the repository read plus the concurrent
+ * price and address enrichment, with the pricing and maps services
+ * answered in memory. "hit" reads the same car, so both client caches
+ * answer; "miss" walks a million cars at distinct locations, so every
+ * lookup goes through the stub WebClients.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CarServiceBenchmark {
+
+    private static final long CARS = 1_000_000;
+
+    @Param({"hit", "miss"})
+    private String cache;
+
+    private CarService carService;
+    private long nextId;
+
+    @Setup
+    public void setup() {
+        MeterRegistry registry = new SimpleMeterRegistry();
+        PriceClient priceClient = new PriceClient(VehicleFixtures.stubClient(VehicleFixtures.PRICE_JSON), registry,
+                CircuitBreaker.ofDefaults("pricing"), Bulkhead.ofDefaults("pricing"), 2000, 200, 10000, 300);
+        MapsClient mapsClient = new MapsClient(VehicleFixtures.stubClient(VehicleFixtures.ADDRESS_JSON), registry,
+                CircuitBreaker.ofDefaults("maps"), Bulkhead.ofDefaults("maps"), 2000, 500, 4, 10000, 60);
+        carService = new CarService(VehicleFixtures.repository(VehicleFixtures::car), mapsClient, priceClient, null, 3, 3000);
+    }
+
+    @Benchmark
+    public Car findById() {
+        long id = "hit".equals(cache) ? 1L : 1 + nextId++ % CARS;
+        return carService.findById(id);
+    }
+}
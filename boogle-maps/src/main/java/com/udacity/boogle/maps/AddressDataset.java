@@ -0,0 +1,65 @@
+package com.udacity.boogle.maps;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Loads a geocoded address dataset from a local tab-separated file, one
+ * address per line: {@code lat, lon, street, city, state, zip}.
+ * Blank lines and lines starting with '#' are skipped.
+ */
+final class AddressDataset {
+
+    private static final int FIELDS = 6;
+
+    private AddressDataset() {
+    }
+
+    /**
+     * @param file the dataset to read
+     * @return an index over every address in the file
+     * @throws IOException if the file cannot be read or a line is malformed
+     */
+    static AddressIndex load(Path file) throws IOException {
+        int capacity = 1 << 16;
+        double[] lats = new double[capacity];
+        double[] lons = new double[capacity];
+        Address[] addresses = new Address[capacity];
+        int count = 0;
+
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.isEmpty() || line.charAt(0) == '#') {
+                    continue;
+                }
+                String[] fields = line.split("\t", -1);
+                if (fields.length != FIELDS) {
+                    throw new IOException(file + ":" + lineNumber + ": expected " + FIELDS
+                            + " tab-separated fields but found " + fields.length);
+                }
+                if (count == capacity) {
+                    capacity *= 2;
+                    lats = Arrays.copyOf(lats, capacity);
+                    lons = Arrays.copyOf(lons, capacity);
+                    addresses = Arrays.copyOf(addresses, capacity);
+                }
+                try {
+                    lats[count] = Double.parseDouble(fields[0]);
+                    lons[count] = Double.parseDouble(fields[1]);
+                } catch (NumberFormatException e) {
+                    throw new IOException(file + ":" + lineNumber + ": invalid coordinates", e);
+                }
+                addresses[count] = new Address(fields[2], fields[3], fields[4], fields[5]);
+                count++;
+            }
+        }
+        return InMemoryAddressIndex.build(lats, lons, addresses, count);
+    }
+}
@@ -0,0 +1,88 @@
+package com.udacity.boogle.maps;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import static com.udacity.boogle.maps.AddressIndex.DIMENSIONS;
+import static com.udacity.boogle.maps.MappedAddressIndex.*;
+
+/**
+ * Converts a tab-separated address dataset into the binary format read by
+ * {@link MappedAddressIndex}. The conversion builds the tree in memory
+ * once, so the service itself never has to.
+ * <pre>
+ * java -cp boogle-maps.jar com.udacity.boogle.maps.AddressDatasetWriter addresses.tsv addresses.bin
+ * </pre>
+ */
+final class AddressDatasetWriter {
+
+    private AddressDatasetWriter() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: AddressDatasetWriter <input.tsv> <output.bin>");
+            System.exit(2);
+        }
+        AddressIndex index = AddressDataset.load(Paths.get(args[0]));
+        write(index, Paths.get(args[1]));
+        System.out.println("Wrote " + index.size() + " addresses to " + args[1]);
+    }
+
+    /**
+     * Writes every point of an index, in tree order, as a binary dataset.
+     * @param index the index to write
+     * @param file the file to create or replace
+     * @throws IOException if the file cannot be written, or an address
+     *   contains the field separator
+     */
+    static void write(AddressIndex index, Path file) throws IOException {
+        int count = index.size();
+        if (8L * (count + 1) > Integer.MAX_VALUE) {
+            throw new IOException("Too many addresses for one dataset file: " + count);
+        }
+        long[] offsets = new long[count + 1];
+        for (int point = 0; point < count; point++) {
+            offsets[point + 1] = offsets[point] + encode(index.address(point)).length;
+        }
+
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(count);
+            out.writeInt(0);
+            out.writeLong(offsets[count]);
+            for (int axis = 0; axis < DIMENSIONS; axis++) {
+                for (int point = 0; point < count; point++) {
+                    out.writeFloat(index.coordinate(point, axis));
+                }
+            }
+            for (long offset : offsets) {
+                out.writeLong(offset);
+            }
+            for (int point = 0; point < count; point++) {
+                out.write(encode(index.address(point)));
+            }
+        }
+    }
+
+    private static byte[] encode(Address address) throws IOException {
+        String[] fields = {address.getAddress(), address.getCity(), address.getState(), address.getZip()};
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].indexOf(SEPARATOR) >= 0) {
+                throw new IOException("Address field contains the U+001F separator: " + fields[i]);
+            }
+            if (i > 0) {
+                joined.append(SEPARATOR);
+            }
+            joined.append(fields[i]);
+        }
+        return joined.toString().getBytes(StandardCharsets.UTF_8);
+    }
+}
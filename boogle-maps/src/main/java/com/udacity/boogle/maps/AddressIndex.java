@@ -0,0 +1,101 @@
+package com.udacity.boogle.maps;
+
+/**
+ * Answers nearest-address queries over a set of geocoded addresses.
+ * Points are held as unit vectors on the sphere, laid out as an implicit
+ * 3-d tree: the point in the middle of any range splits that range on
+ * axis x, y or z by depth, so no node objects are needed. Straight-line
+ * distance between unit vectors grows with great-circle distance, so the
+ * nearest vector is also the nearest address on the globe.
+ */
+abstract class AddressIndex {
+
+    static final int DIMENSIONS = 3;
+
+    /**
+     * @return the number of indexed addresses
+     */
+    abstract int size();
+
+    /**
+     * @param point position of the point in tree order
+     * @param axis 0, 1 or 2 for x, y or z
+     * @return the coordinate of the point on the axis
+     */
+    abstract float coordinate(int point, int axis);
+
+    /**
+     * @param point position of the point in tree order
+     * @return the address of the point
+     */
+    abstract Address address(int point);
+
+    /**
+     * Finds the indexed address closest to the given coordinates.
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     * @return the nearest address, or null if the index is empty
+     */
+    Address nearest(double lat, double lon) {
+        if (size() == 0) {
+            return null;
+        }
+        double[] query = toUnitVector(lat, lon);
+        Search search = new Search();
+        search(0, size(), 0, query, search);
+        return address(search.best);
+    }
+
+    private void search(int lo, int hi, int axis, double[] query, Search search) {
+        if (lo >= hi) {
+            return;
+        }
+        int mid = (lo + hi) >>> 1;
+        double distance = distance2(mid, query);
+        if (distance < search.bestDistance) {
+            search.bestDistance = distance;
+            search.best = mid;
+        }
+        double diff = query[axis] - coordinate(mid, axis);
+        int next = (axis + 1) % DIMENSIONS;
+        if (diff < 0) {
+            search(lo, mid, next, query, search);
+            if (diff * diff < search.bestDistance) {
+                search(mid + 1, hi, next, query, search);
+            }
+        } else {
+            search(mid + 1, hi, next, query, search);
+            if (diff * diff < search.bestDistance) {
+                search(lo, mid, next, query, search);
+            }
+        }
+    }
+
+    private double distance2(int point, double[] query) {
+        double dx = coordinate(point, 0) - query[0];
+        double dy = coordinate(point, 1) - query[1];
+        double dz = coordinate(point, 2) - query[2];
+        return dx * dx + dy * dy + dz * dz;
+    }
+
+    /**
+     * Converts latitude and longitude to a point on the unit sphere.
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     * @return x, y and z of the point
+     */
+    static double[] toUnitVector(double lat, double lon) {
+        double phi = Math.toRadians(lat);
+        double lambda = Math.toRadians(lon);
+        double cosPhi = Math.cos(phi);
+        return new double[]{cosPhi * Math.cos(lambda), cosPhi * Math.sin(lambda), Math.sin(phi)};
+    }
+
+    /**
+     * Best candidate found so far by one query.
+     */
+    private static final class Search {
+        private int best = -1;
+        private double bestDistance = Double.POSITIVE_INFINITY;
+    }
+}
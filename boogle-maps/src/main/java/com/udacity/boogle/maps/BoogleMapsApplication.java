@@ -1,13 +1,47 @@
 package com.udacity.boogle.maps;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.Bean;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 @SpringBootApplication
 public class BoogleMapsApplication {
 
+	private static final Logger log = LoggerFactory.getLogger(BoogleMapsApplication.class);
+
 	public static void main(String[] args) {
 		SpringApplication.run(BoogleMapsApplication.class, args);
 	}
 
+	/**
+	 * Index used to answer reverse-geocoding queries: the dataset file at
+	 * "maps.dataset" if set, otherwise the built-in mock addresses. Binary
+	 * datasets are memory-mapped; tab-separated ones are indexed on the heap.
+	 * @param dataset path of a binary or tab-separated address dataset, or empty
+	 * @return the address index
+	 * @throws IOException if the dataset cannot be read
+	 */
+	@Bean
+	AddressIndex addressIndex(@Value("${maps.dataset:}") String dataset) throws IOException {
+		if (dataset.isEmpty()) {
+			log.info("No maps.dataset configured, indexing the mock addresses");
+			return MockAddressRepository.index();
+		}
+		long start = System.nanoTime();
+		Path file = Paths.get(dataset);
+		AddressIndex index = MappedAddressIndex.isDataset(file)
+				? MappedAddressIndex.open(file)
+				: AddressDataset.load(file);
+		log.info("Indexed {} addresses from {} in {} ms", index.size(), dataset,
+				(System.nanoTime() - start) / 1_000_000);
+		return index;
+	}
+
 }
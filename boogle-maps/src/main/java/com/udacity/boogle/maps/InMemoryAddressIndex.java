@@ -0,0 +1,58 @@
+package com.udacity.boogle.maps;
+
+/**
+ * Address index held on the heap: one float array of interleaved unit
+ * vectors and one array of addresses, both in tree order.
+ */
+class InMemoryAddressIndex extends AddressIndex {
+
+    private final float[] coordinates;
+    private final Address[] addresses;
+
+    private InMemoryAddressIndex(float[] coordinates, Address[] addresses) {
+        this.coordinates = coordinates;
+        this.addresses = addresses;
+    }
+
+    @Override
+    int size() {
+        return addresses.length;
+    }
+
+    @Override
+    float coordinate(int point, int axis) {
+        return coordinates[point * DIMENSIONS + axis];
+    }
+
+    @Override
+    Address address(int point) {
+        return addresses[point];
+    }
+
+    /**
+     * Builds an index over the given addresses.
+     * @param lats latitude of each address, in degrees
+     * @param lons longitude of each address, in degrees
+     * @param addresses the addresses, in the same order as the coordinates
+     * @param count number of addresses to index from the start of the arrays
+     * @return the index
+     */
+    static InMemoryAddressIndex build(double[] lats, double[] lons, Address[] addresses, int count) {
+        float[] vectors = new float[count * DIMENSIONS];
+        for (int i = 0; i < count; i++) {
+            double[] vector = toUnitVector(lats[i], lons[i]);
+            for (int axis = 0; axis < DIMENSIONS; axis++) {
+                vectors[i * DIMENSIONS + axis] = (float) vector[axis];
+            }
+        }
+        int[] order = TreeOrder.sort(vectors, count);
+
+        float[] coordinates = new float[count * DIMENSIONS];
+        Address[] sorted = new Address[count];
+        for (int i = 0; i < count; i++) {
+            System.arraycopy(vectors, order[i] * DIMENSIONS, coordinates, i * DIMENSIONS, DIMENSIONS);
+            sorted[i] = addresses[order[i]];
+        }
+        return new InMemoryAddressIndex(coordinates, sorted);
+    }
+}
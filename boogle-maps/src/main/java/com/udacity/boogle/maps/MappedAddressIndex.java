@@ -0,0 +1,142 @@
+package com.udacity.boogle.maps;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.FloatBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Address index memory-mapped from a binary dataset file, so opening it
+ * reads nothing but the header and the heap does not grow with the size
+ * of the dataset. Addresses are decoded only when a query returns them.
+ * <p>
+ * File layout, big-endian, everything in tree order:
+ * <pre>
+ * header   int magic, int version, int count, int reserved, long pool length
+ * x, y, z  one column of count floats per axis
+ * offsets  count + 1 longs, start of each address in the pool
+ * pool     UTF-8 street, city, state and zip, separated by U+001F
+ * </pre>
+ * Files are written by {@link AddressDatasetWriter}.
+ */
+class MappedAddressIndex extends AddressIndex {
+
+    static final int MAGIC = 0x42474D41;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 24;
+    static final char SEPARATOR = '\u001F';
+
+    /**
+     * Largest single mapping; the pool is split into sections of this size.
+     */
+    private static final int SECTION_BYTES = 1 << 30;
+
+    private final int count;
+    private final FloatBuffer[] columns;
+    private final LongBuffer offsets;
+    private final ByteBuffer[] pool;
+
+    private MappedAddressIndex(int count, FloatBuffer[] columns, LongBuffer offsets, ByteBuffer[] pool) {
+        this.count = count;
+        this.columns = columns;
+        this.offsets = offsets;
+        this.pool = pool;
+    }
+
+    @Override
+    int size() {
+        return count;
+    }
+
+    @Override
+    float coordinate(int point, int axis) {
+        return columns[axis].get(point);
+    }
+
+    @Override
+    Address address(int point) {
+        long start = offsets.get(point);
+        byte[] bytes = new byte[(int) (offsets.get(point + 1) - start)];
+        int copied = 0;
+        while (copied < bytes.length) {
+            long position = start + copied;
+            ByteBuffer section = pool[(int) (position / SECTION_BYTES)].duplicate();
+            section.position((int) (position % SECTION_BYTES));
+            int length = Math.min(bytes.length - copied, section.remaining());
+            section.get(bytes, copied, length);
+            copied += length;
+        }
+        String fields = new String(bytes, StandardCharsets.UTF_8);
+        int city = fields.indexOf(SEPARATOR);
+        int state = fields.indexOf(SEPARATOR, city + 1);
+        int zip = fields.indexOf(SEPARATOR, state + 1);
+        return new Address(fields.substring(0, city), fields.substring(city + 1, state),
+                fields.substring(state + 1, zip), fields.substring(zip + 1));
+    }
+
+    /**
+     * @param file any file
+     * @return whether the file starts like a binary address dataset
+     * @throws IOException if the file cannot be read
+     */
+    static boolean isDataset(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] magic = new byte[4];
+            return in.read(magic) == magic.length && ByteBuffer.wrap(magic).getInt() == MAGIC;
+        }
+    }
+
+    /**
+     * Maps a binary dataset file. The mappings stay valid after the file
+     * channel is closed and are released when the index is collected.
+     * @param file the dataset to map
+     * @return an index over every address in the file
+     * @throws IOException if the file cannot be read or is not a valid dataset
+     */
+    static MappedAddressIndex open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+                throw new IOException(file + ": not a binary address dataset");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException(file + ": unsupported dataset version " + version);
+            }
+            int count = header.getInt();
+            header.getInt();
+            long poolBytes = header.getLong();
+
+            long columnBytes = 4L * count;
+            long offsetBytes = 8L * (count + 1);
+            long poolStart = HEADER_BYTES + DIMENSIONS * columnBytes + offsetBytes;
+            if (count < 0 || offsetBytes > Integer.MAX_VALUE || channel.size() != poolStart + poolBytes) {
+                throw new IOException(file + ": truncated or corrupt dataset");
+            }
+
+            FloatBuffer[] columns = new FloatBuffer[DIMENSIONS];
+            for (int axis = 0; axis < DIMENSIONS; axis++) {
+                columns[axis] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        HEADER_BYTES + axis * columnBytes, columnBytes).asFloatBuffer();
+            }
+            LongBuffer offsets = channel.map(FileChannel.MapMode.READ_ONLY,
+                    HEADER_BYTES + DIMENSIONS * columnBytes, offsetBytes).asLongBuffer();
+
+            ByteBuffer[] pool = new ByteBuffer[(int) ((poolBytes + SECTION_BYTES - 1) / SECTION_BYTES)];
+            for (int section = 0; section < pool.length; section++) {
+                long start = (long) section * SECTION_BYTES;
+                pool[section] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        poolStart + start, Math.min(SECTION_BYTES, poolBytes - start));
+            }
+            return new MappedAddressIndex(count, columns, offsets, pool);
+        }
+    }
+}
@@ -1,16 +1,59 @@
 package com.udacity.boogle.maps;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.List;
 
 @RestController
 @RequestMapping("/maps")
 public class MapsController {
 
+    private final AddressIndex addressIndex;
+    private final int maxBatchSize;
+
+    MapsController(AddressIndex addressIndex, @Value("${maps.batch.max-size:1000}") int maxBatchSize) {
+        this.addressIndex = addressIndex;
+        this.maxBatchSize = maxBatchSize;
+    }
+
+    /**
+     * Reverse-geocodes a location to the nearest known address.
+     * @param lat latitude in degrees
+     * @param lon longitude in degrees
+     * @return the nearest address, always the same for the same location
+     */
     @GetMapping
     public Address get(@RequestParam Double lat, @RequestParam Double lon) {
-        return MockAddressRepository.getRandom();
+        return addressIndex.nearest(lat, lon);
+    }
+
+    /**
+     * Reverse-geocodes many locations in one request.
+     * @param locations the locations to resolve, at most "maps.batch.max-size"
+     * @return the nearest address of each location, in the same order
+     */
+    @PostMapping("/batch")
+    public List<Address> batch(@RequestBody List<Coordinates> locations) {
+        if (locations.size() > maxBatchSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBatchSize + " locations per batch");
+        }
+        List<Address> addresses = new ArrayList<>(locations.size());
+        for (Coordinates location : locations) {
+            if (location == null || location.getLat() == null || location.getLon() == null) {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Every location needs lat and lon");
+            }
+            addresses.add(addressIndex.nearest(location.getLat(), location.getLon()));
+        }
+        return addresses;
     }
 }
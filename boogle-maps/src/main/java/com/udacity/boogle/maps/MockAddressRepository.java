@@ -3,6 +3,7 @@ package com.udacity.boogle.maps;
 import java.util.Arrays;
 import java.util.LinkedList;
 import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.util.stream.Collectors;
 
 /**
@@ -10,17 +11,41 @@ import java.util.stream.Collectors;
  */
 class MockAddressRepository {
 
+    private static final long PLACEMENT_SEED = 20190601L;
+
     /**
      * Gets a random address from the list.
-     * @return A new, random address split into street, city, state and zip
+     * The shared instance is returned, so callers must not modify it.
+     * @return A random address split into street, city, state and zip
      */
     static Address getRandom() {
+        return TABLE[ThreadLocalRandom.current().nextInt(TABLE.length)];
+    }
 
-        Random generator = new Random();
-        int randomIndex = generator.nextInt(ADDRESSES.length);
-
-        String address = ADDRESSES[randomIndex];
+    /**
+     * Indexes the mock addresses for nearest-address lookups. They carry no
+     * coordinates, so each is placed at a fixed pseudo-random point within the
+     * contiguous United States; the same location then always resolves to
+     * the same address.
+     * @return an index over the mock addresses
+     */
+    static AddressIndex index() {
+        Random placement = new Random(PLACEMENT_SEED);
+        double[] lats = new double[TABLE.length];
+        double[] lons = new double[TABLE.length];
+        for (int i = 0; i < TABLE.length; i++) {
+            lats[i] = 25 + placement.nextDouble() * 24;
+            lons[i] = -124 + placement.nextDouble() * 57;
+        }
+        return InMemoryAddressIndex.build(lats, lons, TABLE, TABLE.length);
+    }
 
+    /**
+     * Splits an address line into street, city, state and zip.
+     * @param address a line of the form "street, city state zip"
+     * @return the parsed address
+     */
+    static Address parse(String address) {
         String[] addressParts = address.split(",");
         String streetAndNumber = addressParts[0];
         String cityStateAndZip = addressParts[1];
@@ -277,4 +302,11 @@ class MockAddressRepository {
             "4538 Us Hwy 231, Wetumpka AL 36092",
             "2575 Us Hwy 43, Winfield AL 35594"
     };
+
+    /**
+     * The addresses above, parsed once so that lookups allocate nothing
+     */
+    private static final Address[] TABLE = Arrays.stream(ADDRESSES)
+            .map(MockAddressRepository::parse)
+            .toArray(Address[]::new);
 }
@@ -0,0 +1,78 @@
+package com.udacity.boogle.maps;
+
+import static com.udacity.boogle.maps.AddressIndex.DIMENSIONS;
+
+/**
+ * Arranges points in implicit k-d tree order: within every range, the
+ * middle position holds the median on that level's axis, with smaller
+ * values before it and larger ones after. Runs in O(n log n) using
+ * quickselect on a permutation, without moving the points themselves.
+ */
+final class TreeOrder {
+
+    private TreeOrder() {
+    }
+
+    /**
+     * @param vectors interleaved x, y, z coordinates of the points
+     * @param count number of points
+     * @return the point indexes in tree order
+     */
+    static int[] sort(float[] vectors, int count) {
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) {
+            order[i] = i;
+        }
+        arrange(vectors, order, 0, count, 0);
+        return order;
+    }
+
+    private static void arrange(float[] vectors, int[] order, int lo, int hi, int axis) {
+        while (hi - lo > 1) {
+            int mid = (lo + hi) >>> 1;
+            select(vectors, order, lo, hi - 1, mid, axis);
+            int next = (axis + 1) % DIMENSIONS;
+            arrange(vectors, order, lo, mid, next);
+            lo = mid + 1;
+            axis = next;
+        }
+    }
+
+    /**
+     * Hoare quickselect: moves the k-th smallest point on the axis within
+     * [left, right] to position k.
+     */
+    private static void select(float[] vectors, int[] order, int left, int right, int k, int axis) {
+        while (right > left) {
+            float pivot = key(vectors, order[(left + right) >>> 1], axis);
+            int i = left;
+            int j = right;
+            while (i <= j) {
+                while (key(vectors, order[i], axis) < pivot) {
+                    i++;
+                }
+                while (key(vectors, order[j], axis) > pivot) {
+                    j--;
+                }
+                if (i <= j) {
+                    int swap = order[i];
+                    order[i] = order[j];
+                    order[j] = swap;
+                    i++;
+                    j--;
+                }
+            }
+            if (k <= j) {
+                right = j;
+            } else if (k >= i) {
+                left = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    private static float key(float[] vectors, int point, int axis) {
+        return vectors[point * DIMENSIONS + axis];
+    }
+}
@@ -0,0 +1,138 @@
+package com.udacity.boogle.maps;
+
+import org.junit.Test;
+
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * Tests the nearest-address search of the implicit k-d tree.
+ */
+public class AddressIndexTest {
+
+	/**
+	 * Tests that an index with no addresses finds nothing.
+	 */
+	@Test
+	public void emptyIndexFindsNothing() {
+		AddressIndex index = InMemoryAddressIndex.build(new double[0], new double[0], new Address[0], 0);
+
+		assertEquals(0, index.size());
+		assertNull(index.nearest(0, 0));
+		assertNull(index.nearest(90, 180));
+	}
+
+	/**
+	 * Tests that a point just across the antimeridian is nearer than one
+	 * on the same side but further away.
+	 */
+	@Test
+	public void nearestAcrossAntimeridian() {
+		Address west = address(0);
+		Address east = address(1);
+		AddressIndex index = InMemoryAddressIndex.build(
+				new double[]{10, 10}, new double[]{179.9, -179.0}, new Address[]{west, east}, 2);
+
+		assertSame(west, index.nearest(10, -179.95));
+		assertSame(east, index.nearest(10, -179.2));
+	}
+
+	/**
+	 * Tests that at a pole, where every longitude meets, the point with the
+	 * highest latitude is nearest whatever its longitude.
+	 */
+	@Test
+	public void nearestAtPoles() {
+		Address north = address(0);
+		Address nearNorth = address(1);
+		Address south = address(2);
+		AddressIndex index = InMemoryAddressIndex.build(
+				new double[]{89.5, 85.0, -89.9}, new double[]{-120.0, 60.0, 45.0},
+				new Address[]{north, nearNorth, south}, 3);
+
+		assertSame(north, index.nearest(90, 60.0));
+		assertSame(north, index.nearest(90, 0));
+		assertSame(south, index.nearest(-90, -135.0));
+	}
+
+	/**
+	 * Tests nearest against a linear scan over random points: spread over
+	 * the globe, crowded around the antimeridian, and crowded around both
+	 * poles, with queries drawn the same way.
+	 */
+	@Test
+	public void matchesLinearScan() {
+		Random random = new Random(7);
+		for (int count : new int[]{1, 2, 3, 10, 100, 5000}) {
+			double[] lats = new double[count];
+			double[] lons = new double[count];
+			Address[] addresses = new Address[count];
+			for (int i = 0; i < count; i++) {
+				double[] point = randomPoint(random, i % 3);
+				lats[i] = point[0];
+				lons[i] = point[1];
+				addresses[i] = address(i);
+			}
+			AddressIndex index = InMemoryAddressIndex.build(lats, lons, addresses, count);
+			Map<Address, Integer> positions = new IdentityHashMap<>();
+			for (int i = 0; i < count; i++) {
+				positions.put(addresses[i], i);
+			}
+
+			for (int query = 0; query < 500; query++) {
+				double[] point = randomPoint(random, query % 3);
+				double[] vector = AddressIndex.toUnitVector(point[0], point[1]);
+				double best = Double.POSITIVE_INFINITY;
+				for (int i = 0; i < count; i++) {
+					best = Math.min(best, distance2(floatVector(lats[i], lons[i]), vector));
+				}
+
+				int found = positions.get(index.nearest(point[0], point[1]));
+				assertEquals("query at " + point[0] + ", " + point[1],
+						best, distance2(floatVector(lats[found], lons[found]), vector), 0);
+			}
+		}
+	}
+
+	/**
+	 * @param kind 0 for anywhere, 1 for near the antimeridian, 2 for near a pole
+	 * @return latitude and longitude in degrees
+	 */
+	private static double[] randomPoint(Random random, int kind) {
+		switch (kind) {
+			case 1:
+				double lon = 180 - random.nextDouble() * 2;
+				return new double[]{random.nextDouble() * 20 - 10, random.nextBoolean() ? lon : -lon};
+			case 2:
+				double lat = 90 - random.nextDouble() * 2;
+				return new double[]{random.nextBoolean() ? lat : -lat, random.nextDouble() * 360 - 180};
+			default:
+				return new double[]{Math.toDegrees(Math.asin(random.nextDouble() * 2 - 1)),
+						random.nextDouble() * 360 - 180};
+		}
+	}
+
+	/**
+	 * @return the unit vector as the index stores it
+	 */
+	private static float[] floatVector(double lat, double lon) {
+		double[] vector = AddressIndex.toUnitVector(lat, lon);
+		return new float[]{(float) vector[0], (float) vector[1], (float) vector[2]};
+	}
+
+	private static double distance2(float[] point, double[] query) {
+		double dx = point[0] - query[0];
+		double dy = point[1] - query[1];
+		double dz = point[2] - query[2];
+		return dx * dx + dy * dy + dz * dz;
+	}
+
+	private static Address address(int i) {
+		return new Address(i + " Main St", "Springfield", "IL", "62701");
+	}
+}
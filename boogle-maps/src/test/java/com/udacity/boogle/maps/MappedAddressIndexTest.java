@@ -0,0 +1,106 @@
+package com.udacity.boogle.maps;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests that a dataset written by AddressDatasetWriter maps back to the
+ * index it was written from.
+ */
+public class MappedAddressIndexTest {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	/**
+	 * Tests that the mapped index holds the same points and addresses, in
+	 * the same order, and answers queries with the same addresses.
+	 */
+	@Test
+	public void roundTripMatchesInMemoryIndex() throws IOException {
+		Random random = new Random(11);
+		int count = 2000;
+		double[] lats = new double[count];
+		double[] lons = new double[count];
+		Address[] addresses = new Address[count];
+		for (int i = 0; i < count; i++) {
+			lats[i] = random.nextDouble() * 180 - 90;
+			lons[i] = random.nextDouble() * 360 - 180;
+			String street = i + " Straße " + "x".repeat(random.nextInt(40));
+			addresses[i] = new Address(street, i % 7 == 0 ? "" : "Zürich", "ZH", String.valueOf(8000 + i));
+		}
+		InMemoryAddressIndex expected = InMemoryAddressIndex.build(lats, lons, addresses, count);
+		Path file = folder.newFile("addresses.bin").toPath();
+
+		AddressDatasetWriter.write(expected, file);
+		MappedAddressIndex mapped = MappedAddressIndex.open(file);
+
+		assertTrue(MappedAddressIndex.isDataset(file));
+		assertEquals(count, mapped.size());
+		for (int point = 0; point < count; point++) {
+			for (int axis = 0; axis < AddressIndex.DIMENSIONS; axis++) {
+				assertEquals(expected.coordinate(point, axis), mapped.coordinate(point, axis), 0);
+			}
+			assertSameAddress(expected.address(point), mapped.address(point));
+		}
+		for (int query = 0; query < 500; query++) {
+			double lat = random.nextDouble() * 180 - 90;
+			double lon = random.nextDouble() * 360 - 180;
+			assertSameAddress(expected.nearest(lat, lon), mapped.nearest(lat, lon));
+		}
+	}
+
+	/**
+	 * Tests that an empty index round-trips to an empty mapped index.
+	 */
+	@Test
+	public void roundTripOfEmptyIndex() throws IOException {
+		Path file = folder.newFile("empty.bin").toPath();
+
+		AddressDatasetWriter.write(InMemoryAddressIndex.build(new double[0], new double[0], new Address[0], 0), file);
+		MappedAddressIndex mapped = MappedAddressIndex.open(file);
+
+		assertEquals(0, mapped.size());
+		assertNull(mapped.nearest(0, 0));
+	}
+
+	/**
+	 * Tests that a truncated dataset is refused rather than mapped.
+	 */
+	@Test
+	public void truncatedDatasetIsRefused() throws IOException {
+		Address[] addresses = {new Address("1 Main St", "Springfield", "IL", "62701")};
+		Path file = folder.newFile("truncated.bin").toPath();
+		AddressDatasetWriter.write(InMemoryAddressIndex.build(new double[]{40}, new double[]{-89}, addresses, 1), file);
+		byte[] bytes = Files.readAllBytes(file);
+		Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+
+		try {
+			MappedAddressIndex.open(file);
+			fail("opened a truncated dataset");
+		} catch (IOException expected) {
+			assertTrue(expected.getMessage().contains("truncated"));
+		}
+		assertFalse(MappedAddressIndex.isDataset(folder.newFile("other.txt").toPath()));
+	}
+
+	private static void assertSameAddress(Address expected, Address actual) {
+		assertEquals(expected.getAddress(), actual.getAddress());
+		assertEquals(expected.getCity(), actual.getCity());
+		assertEquals(expected.getState(), actual.getState());
+		assertEquals(expected.getZip(), actual.getZip());
+	}
+}
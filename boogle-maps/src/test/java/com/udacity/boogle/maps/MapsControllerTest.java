@@ -0,0 +1,88 @@
+package com.udacity.boogle.maps;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.Arrays;
+import java.util.HashSet;
+
+import static org.hamcrest.Matchers.hasSize;
+import static org.junit.Assert.assertEquals;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the batch endpoint against the mock addresses, with a batch limit
+ * of three locations.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "maps.batch.max-size=3")
+@AutoConfigureMockMvc
+public class MapsControllerTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private AddressIndex addressIndex;
+
+	/**
+	 * Tests that each location gets its nearest address, in request order.
+	 */
+	@Test
+	public void batchAnswersInRequestOrder() throws Exception {
+		double[][] locations = {{40.73, -73.93}, {34.05, -118.24}, {41.88, -87.63}};
+		assertEquals("locations must have distinct addresses", 3,
+				new HashSet<>(Arrays.asList(nearest(locations[0]), nearest(locations[1]), nearest(locations[2]))).size());
+
+		mvc.perform(post("/maps/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"lat\":40.73,\"lon\":-73.93},{\"lat\":34.05,\"lon\":-118.24},{\"lat\":41.88,\"lon\":-87.63}]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(3)))
+				.andExpect(jsonPath("$[0].address").value(nearest(locations[0])))
+				.andExpect(jsonPath("$[1].address").value(nearest(locations[1])))
+				.andExpect(jsonPath("$[2].address").value(nearest(locations[2])));
+	}
+
+	/**
+	 * Tests that an empty batch gets an empty answer.
+	 */
+	@Test
+	public void emptyBatch() throws Exception {
+		mvc.perform(post("/maps/batch").contentType(MediaType.APPLICATION_JSON).content("[]"))
+				.andExpect(status().isOk())
+				.andExpect(jsonPath("$", hasSize(0)));
+	}
+
+	/**
+	 * Tests that a batch over maps.batch.max-size is rejected with 400.
+	 */
+	@Test
+	public void oversizeBatchIsRejected() throws Exception {
+		mvc.perform(post("/maps/batch")
+				.contentType(MediaType.APPLICATION_JSON)
+				.content("[{\"lat\":1,\"lon\":1},{\"lat\":2,\"lon\":2},{\"lat\":3,\"lon\":3},{\"lat\":4,\"lon\":4}]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	/**
+	 * Tests that a location without coordinates is rejected with 400.
+	 */
+	@Test
+	public void locationWithoutCoordinatesIsRejected() throws Exception {
+		mvc.perform(post("/maps/batch").contentType(MediaType.APPLICATION_JSON).content("[{\"lat\":1}]"))
+				.andExpect(status().isBadRequest());
+	}
+
+	private String nearest(double[] location) {
+		return addressIndex.nearest(location[0], location[1]).getAddress();
+	}
+}
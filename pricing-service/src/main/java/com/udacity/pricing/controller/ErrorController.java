@@ -34,6 +34,10 @@ public class ErrorController extends ResponseEntityExceptionHandler {
             bodyOfResponse = "Price Not Found";
             return handleExceptionInternal(ex, bodyOfResponse,
                     new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+        } else if (ex instanceof ResponseStatusException) {
+            ResponseStatusException statusException = (ResponseStatusException) ex;
+            return handleExceptionInternal(ex, statusException.getReason(),
+                    new HttpHeaders(), statusException.getStatus(), request);
         } else {
             bodyOfResponse = "Operation not supported.";
             return handleExceptionInternal(ex, bodyOfResponse,
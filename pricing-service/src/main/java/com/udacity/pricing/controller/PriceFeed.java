@@ -0,0 +1,145 @@
+package com.udacity.pricing.controller;
+
+import com.udacity.pricing.domain.price.PriceChange;
+import com.udacity.pricing.service.PricingService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Pushes price changes to Server-Sent Events subscribers. A single
+ * dispatcher thread owns the subscriber list and sends every event, so
+ * each subscriber sees changes once and in version order, and writers are
+ * never held up by slow clients.
+ */
+@Component
+public class PriceFeed {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceFeed.class);
+
+    private final PricingService pricingService;
+    private final long timeoutMillis;
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "price-feed");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final List<Subscriber> subscribers = new ArrayList<>();
+
+    public PriceFeed(PricingService pricingService,
+                     @Value("${pricing.feed.timeout-ms:1800000}") long timeoutMillis) {
+        this.pricingService = pricingService;
+        this.timeoutMillis = timeoutMillis;
+        pricingService.onChange(changes -> dispatch(() -> publish(changes)));
+    }
+
+    /**
+     * Opens a change stream. Changes after the given version are sent as
+     * "change" events, each with its version as the event ID. If those
+     * changes are no longer all held, a single "reset" event carries the
+     * current version instead: the client should reload the snapshot and
+     * apply only changes newer than the snapshot's version.
+     *
+     * @param since the last version the client has applied, or null to
+     *              receive only changes made from now on
+     * @return the event stream
+     */
+    public SseEmitter subscribe(Long since) {
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(emitter);
+        emitter.onCompletion(() -> dispatch(() -> subscribers.remove(subscriber)));
+        emitter.onTimeout(emitter::complete);
+        dispatch(() -> {
+            List<PriceChange> backlog = (since != null) ? pricingService.changesSince(since) : null;
+            boolean open;
+            if (backlog != null) {
+                subscriber.version = since;
+                open = subscriber.send(backlog);
+            } else {
+                subscriber.version = pricingService.snapshot().getVersion();
+                open = since == null || subscriber.reset();
+            }
+            if (open) {
+                subscribers.add(subscriber);
+            }
+        });
+        return emitter;
+    }
+
+    private void dispatch(Runnable task) {
+        try {
+            dispatcher.execute(task);
+        } catch (RejectedExecutionException e) {
+            log.debug("Price feed is shut down");
+        }
+    }
+
+    private void publish(List<PriceChange> changes) {
+        subscribers.removeIf(subscriber -> !subscriber.send(changes));
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.shutdownNow();
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    /**
+     * One open stream and the last version sent on it; only used on the
+     * dispatcher thread.
+     */
+    private static final class Subscriber {
+        private final SseEmitter emitter;
+        private long version;
+
+        private Subscriber(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        /**
+         * @return false if the stream is closed and should be dropped
+         */
+        private boolean send(List<PriceChange> changes) {
+            try {
+                for (PriceChange change : changes) {
+                    if (change.getVersion() > version) {
+                        emitter.send(SseEmitter.event()
+                                .id(String.valueOf(change.getVersion()))
+                                .name("change")
+                                .data(change, MediaType.APPLICATION_JSON));
+                        version = change.getVersion();
+                    }
+                }
+                return true;
+            } catch (Exception e) {
+                log.debug("Dropping price feed subscriber: {}", e.getMessage());
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+
+        private boolean reset() {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(String.valueOf(version))
+                        .name("reset")
+                        .data(version));
+                return true;
+            } catch (Exception e) {
+                log.debug("Dropping price feed subscriber: {}", e.getMessage());
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
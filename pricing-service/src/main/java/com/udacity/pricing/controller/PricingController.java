@@ -1,15 +1,28 @@
 package com.udacity.pricing.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceOutcome;
+import com.udacity.pricing.exceptions.IdempotencyKeyException;
 import com.udacity.pricing.exceptions.PriceException;
+import com.udacity.pricing.service.PriceSnapshot;
 import com.udacity.pricing.service.PricingService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.util.DigestUtils;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
-import java.math.BigDecimal;
-import java.util.Optional;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Implements a REST-based controller for the pricing service.
@@ -18,26 +31,44 @@ import java.util.Set;
 @RequestMapping("/services/price")
 public class PricingController {
     private PricingService pricingService;
+    private final PriceFeed priceFeed;
+    private final ObjectMapper objectMapper;
+    private final int maxBulkSize;
+    private final long maxAgeSeconds;
 
-    public PricingController(PricingService pricingService) {
+    public PricingController(PricingService pricingService,
+                             PriceFeed priceFeed,
+                             ObjectMapper objectMapper,
+                             @Value("${pricing.bulk.max-size:100000}") int maxBulkSize,
+                             @Value("${pricing.http-cache.max-age-seconds:60}") long maxAgeSeconds) {
         this.pricingService = pricingService;
+        this.priceFeed = priceFeed;
+        this.objectMapper = objectMapper;
+        this.maxBulkSize = maxBulkSize;
+        this.maxAgeSeconds = maxAgeSeconds;
     }
 
     /**
-     * Gets the price for a requested vehicle.
+     * Gets the price for a requested vehicle. The response carries an ETag
+     * and Cache-Control, and a request whose If-None-Match still matches is
+     * answered with 304 Not Modified and no body.
      *
      * @param vehicleId ID number of the vehicle for which the price is requested
      * @return price of the vehicle, or error that it was not found.
      */
     @GetMapping
-    public Price get(@RequestParam(name = "vehicleId") Long vehicleId) {
+    public ResponseEntity<Price> get(@RequestParam(name = "vehicleId") Long vehicleId) {
+        Price price;
         try {
-            return pricingService.getPrice(vehicleId);
+            price = pricingService.getPrice(vehicleId);
         } catch (PriceException ex) {
             throw new ResponseStatusException(
                     HttpStatus.NOT_FOUND, "Price Not Found", ex);
         }
-
+        return ResponseEntity.ok()
+                .eTag(etag(price))
+                .cacheControl(CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic())
+                .body(price);
     }
 
     /**
@@ -51,6 +82,43 @@ public class PricingController {
         return pricingService.getPriceList(vehicleList);
     }
 
+    /**
+     * Streams every price as of a single version, as
+     * {"version": n, "prices": [...]}, without buffering the whole list.
+     *
+     * @return the snapshot, written as it is read
+     */
+    @GetMapping(value = "/snapshot", produces = MediaType.APPLICATION_JSON_VALUE)
+    public StreamingResponseBody snapshot() {
+        PriceSnapshot snapshot = pricingService.snapshot();
+        return out -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+                json.writeStartObject();
+                json.writeNumberField("version", snapshot.getVersion());
+                json.writeArrayFieldStart("prices");
+                for (Price price : snapshot) {
+                    json.writeObject(price);
+                }
+                json.writeEndArray();
+                json.writeEndObject();
+            }
+        };
+    }
+
+    /**
+     * Streams price changes as Server-Sent Events, starting after the
+     * given version. Reconnecting clients may send Last-Event-ID instead.
+     *
+     * @param since the last version the client has applied
+     * @param lastEventId the ID of the last event received, set by EventSource on reconnect
+     * @return the event stream
+     */
+    @GetMapping(value = "/changes", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter changes(@RequestParam(name = "since", required = false) Long since,
+                              @RequestHeader(name = "Last-Event-ID", required = false) Long lastEventId) {
+        return priceFeed.subscribe(lastEventId != null ? lastEventId : since);
+    }
+
     /**
      * Sets the price for a requested vehicle.
      *
@@ -63,15 +131,70 @@ public class PricingController {
     }
 
     /**
-     * Sets the price for a requested vehicle.
-     * @param vehicleId ID number of the vehicle for which the price is requested
-     * @return price of the vehicle, or error that it was not found.
+     * Sets the prices of many vehicles in one transaction.
+     *
+     * @param prices prices to create or replace
+     * @return the outcome for each price, in request order
      */
-    @GetMapping("/getNewPrice")
-    public Price getNewPrice(@RequestParam(name = "vehicleId") Long vehicleId,
-                             @RequestParam(name = "currency")String currency,
-                             @RequestParam(name = "amount")Optional<BigDecimal> amount) {
-        return pricingService.setNewPrice(vehicleId, currency, amount);
+    @PostMapping("/bulk")
+    public List<PriceOutcome> setPrices(@RequestBody List<Price> prices) {
+        checkBulkSize(prices.size());
+        return pricingService.setPrices(prices);
+    }
+
+    /**
+     * Deletes the prices of many vehicles in one transaction.
+     *
+     * @param vehicleIds ID numbers of the vehicles whose prices are to be deleted
+     * @return the outcome for each vehicle, in request order
+     */
+    @DeleteMapping("/bulk")
+    public List<PriceOutcome> deletePrices(@RequestBody List<Long> vehicleIds) {
+        checkBulkSize(vehicleIds.size());
+        return pricingService.deletePrices(vehicleIds);
+    }
+
+    /**
+     * Strong validator derived from the content of the price, so it only
+     * changes when the price does.
+     */
+    private static String etag(Price price) {
+        String content = price.getVehicleId() + "|" + price.getCurrency() + "|"
+                + (price.getPrice() != null ? price.getPrice().toPlainString() : "");
+        return "\"" + DigestUtils.md5DigestAsHex(content.getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+
+    private void checkBulkSize(int size) {
+        if (size > maxBulkSize) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "At most " + maxBulkSize + " items per bulk request");
+        }
+    }
+
+    /**
+     * Sets the price for a requested vehicle. Writes sent again with the
+     * same Idempotency-Key header return the first result without
+     * writing again, so clients can retry safely.
+     *
+     * @param vehicleId      ID number of the vehicle for which the price is set
+     * @param price          currency (optional, defaults to USD) and price
+     * @param idempotencyKey client-chosen key identifying this write
+     * @return the stored price of the vehicle
+     */
+    @PutMapping("/{vehicleId}")
+    public Price putPrice(@PathVariable("vehicleId") Long vehicleId,
+                          @RequestBody Price price,
+                          @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey) {
+        if (price.getPrice() == null
+                || (price.getVehicleId() != null && !price.getVehicleId().equals(vehicleId))) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "A price is required, and vehicleId must match the path");
+        }
+        try {
+            return pricingService.putPrice(vehicleId, price.getCurrency(), price.getPrice(), idempotencyKey);
+        } catch (IdempotencyKeyException ex) {
+            throw new ResponseStatusException(HttpStatus.UNPROCESSABLE_ENTITY, ex.getMessage(), ex);
+        }
     }
 
     /**
@@ -0,0 +1,34 @@
+package com.udacity.pricing.domain.idempotency;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * Records a price write made with an idempotency key, so that the write
+ * is not applied again when it is retried, by this instance or another.
+ * It is stored in the same transaction as the price it wrote.
+ */
+@Entity
+@Table(name = "idempotency_key", indexes = @Index(columnList = "createdAt"))
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class IdempotencyKey {
+
+    @Id
+    @Column(name = "idempotency_key")
+    private String key;
+    private Long vehicleId;
+    private String currency;
+    private BigDecimal price;
+    private Instant createdAt;
+}
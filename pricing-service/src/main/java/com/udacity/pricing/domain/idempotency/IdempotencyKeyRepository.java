@@ -0,0 +1,20 @@
+package com.udacity.pricing.domain.idempotency;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.rest.core.annotation.RepositoryRestResource;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Instant;
+
+@Repository
+@RepositoryRestResource(exported = false)
+public interface IdempotencyKeyRepository extends CrudRepository<IdempotencyKey, String> {
+
+    @Transactional
+    @Modifying
+    @Query("delete from IdempotencyKey k where k.createdAt < ?1")
+    int deleteCreatedBefore(Instant cutoff);
+}
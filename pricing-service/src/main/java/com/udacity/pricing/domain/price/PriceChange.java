@@ -0,0 +1,23 @@
+package com.udacity.pricing.domain.price;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+
+/**
+ * Records one mutation of a vehicle's price. Versions increase by one for
+ * every change, so a client that applied version n needs n + 1 next.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceChange {
+
+    private long version;
+    private Long vehicleId;
+    private String currency;
+    private BigDecimal price;
+    private boolean deleted;
+}
@@ -0,0 +1,18 @@
+package com.udacity.pricing.domain.price;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Reports what happened to one vehicle's price in a bulk request.
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class PriceOutcome {
+
+    private Long vehicleId;
+    private String status;
+    private String message;
+}
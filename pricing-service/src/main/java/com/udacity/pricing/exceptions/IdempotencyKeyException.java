@@ -0,0 +1,8 @@
+package com.udacity.pricing.exceptions;
+
+public class IdempotencyKeyException extends RuntimeException {
+
+    public IdempotencyKeyException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,268 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Every price held by the price table as of one version. Snapshots are
+ * immutable once published, so they can be read or streamed without
+ * locking while newer versions are written.
+ * <p>
+ * Entries are spread by hash over a fixed number of segments, each a
+ * linear-probing hash table over a primitive long[] of vehicle IDs. The
+ * next version starts out sharing every segment with this one and copies
+ * a segment only when it first writes to it, so a write costs a copy of
+ * the segment directory and of the segments it touches, not of the whole
+ * table. The mutators are only used by {@link PriceTable} before publishing.
+ */
+public final class PriceSnapshot implements Iterable<Price> {
+
+    static final int SEGMENTS = 256;
+    private static final int SEGMENT_SHIFT = 64 - Integer.numberOfTrailingZeros(SEGMENTS);
+
+    private final Segment[] segments;
+    private int size;
+    private long version;
+
+    /**
+     * Segments this snapshot has copied, and so may write to; null unless
+     * it was made by {@link #next}.
+     */
+    private boolean[] owned;
+
+    PriceSnapshot(long version) {
+        this(new Segment[SEGMENTS], 0, version);
+    }
+
+    private PriceSnapshot(Segment[] segments, int size, long version) {
+        this.segments = segments;
+        this.size = size;
+        this.version = version;
+    }
+
+    /**
+     * @return the version of the last change included in this snapshot
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * @return the number of prices in this snapshot
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param vehicleId ID number of the vehicle
+     * @return the price of the vehicle, or null if it has none
+     */
+    public Price get(long vehicleId) {
+        long hash = hash(vehicleId);
+        Segment segment = segments[(int) (hash >>> SEGMENT_SHIFT)];
+        return segment != null ? segment.get(vehicleId, hash) : null;
+    }
+
+    @Override
+    public Iterator<Price> iterator() {
+        return new Iterator<Price>() {
+            private int segment = -1;
+            private int slot;
+
+            {
+                advance();
+            }
+
+            @Override
+            public boolean hasNext() {
+                return segment < segments.length;
+            }
+
+            @Override
+            public Price next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                Price price = segments[segment].values[slot];
+                advance();
+                return price;
+            }
+
+            private void advance() {
+                slot++;
+                while (segment < segments.length) {
+                    Segment current = segment >= 0 ? segments[segment] : null;
+                    if (current != null) {
+                        while (slot < current.values.length) {
+                            if (current.values[slot] != null) {
+                                return;
+                            }
+                            slot++;
+                        }
+                    }
+                    segment++;
+                    slot = 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * @param version version of the next snapshot
+     * @return a writable snapshot with the same entries, sharing every
+     *   segment with this one until it writes to it
+     */
+    PriceSnapshot next(long version) {
+        PriceSnapshot next = new PriceSnapshot(segments.clone(), size, version);
+        next.owned = new boolean[SEGMENTS];
+        return next;
+    }
+
+    void setVersion(long version) {
+        this.version = version;
+    }
+
+    void put(long key, Price value) {
+        long hash = hash(key);
+        if (writable((int) (hash >>> SEGMENT_SHIFT)).put(key, hash, value)) {
+            size++;
+        }
+    }
+
+    /**
+     * @return whether the key was present
+     */
+    boolean remove(long key) {
+        long hash = hash(key);
+        int index = (int) (hash >>> SEGMENT_SHIFT);
+        if (segments[index] == null || segments[index].get(key, hash) == null) {
+            return false;
+        }
+        writable(index).remove(key, hash);
+        size--;
+        return true;
+    }
+
+    private Segment writable(int index) {
+        if (!owned[index]) {
+            segments[index] = segments[index] != null ? segments[index].copy() : new Segment(Segment.MIN_CAPACITY);
+            owned[index] = true;
+        }
+        return segments[index];
+    }
+
+    static long hash(long key) {
+        return key * 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * One linear-probing hash table, kept at most half full; a slot is
+     * empty when its value is null. The segment is picked by the top bits
+     * of the hash, the home slot by the hash folded to 32 bits.
+     */
+    static final class Segment {
+
+        static final int MIN_CAPACITY = 8;
+
+        long[] keys;
+        Price[] values;
+        private int mask;
+        private int size;
+
+        Segment(int capacity) {
+            keys = new long[capacity];
+            values = new Price[capacity];
+            mask = capacity - 1;
+        }
+
+        Price get(long key, long hash) {
+            for (int slot = slot(hash); ; slot = (slot + 1) & mask) {
+                Price value = values[slot];
+                if (value == null || keys[slot] == key) {
+                    return value;
+                }
+            }
+        }
+
+        Segment copy() {
+            Segment copy = new Segment(keys.length);
+            System.arraycopy(keys, 0, copy.keys, 0, keys.length);
+            System.arraycopy(values, 0, copy.values, 0, values.length);
+            copy.size = size;
+            return copy;
+        }
+
+        /**
+         * @return whether the key is new to this segment
+         */
+        boolean put(long key, long hash, Price value) {
+            int slot = slot(hash);
+            while (values[slot] != null && keys[slot] != key) {
+                slot = (slot + 1) & mask;
+            }
+            if (values[slot] != null) {
+                values[slot] = value;
+                return false;
+            }
+            if (size + 1 > keys.length / 2) {
+                grow();
+                return put(key, hash, value);
+            }
+            keys[slot] = key;
+            values[slot] = value;
+            size++;
+            return true;
+        }
+
+        /**
+         * Removes by shifting later entries of the probe run back, so no
+         * tombstones are needed.
+         */
+        void remove(long key, long hash) {
+            int hole = slot(hash);
+            while (values[hole] != null && keys[hole] != key) {
+                hole = (hole + 1) & mask;
+            }
+            if (values[hole] == null) {
+                return;
+            }
+            values[hole] = null;
+            size--;
+            for (int slot = (hole + 1) & mask; values[slot] != null; slot = (slot + 1) & mask) {
+                int home = slot(hash(keys[slot]));
+                boolean reachable = hole <= slot ? hole < home && home <= slot : hole < home || home <= slot;
+                if (!reachable) {
+                    keys[hole] = keys[slot];
+                    values[hole] = values[slot];
+                    values[slot] = null;
+                    hole = slot;
+                }
+            }
+        }
+
+        int slot(long hash) {
+            return (int) (hash ^ (hash >>> 32)) & mask;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            Price[] oldValues = values;
+            keys = new long[oldKeys.length * 2];
+            values = new Price[oldValues.length * 2];
+            mask = keys.length - 1;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldValues[i] != null) {
+                    int slot = slot(hash(oldKeys[i]));
+                    while (values[slot] != null) {
+                        slot = (slot + 1) & mask;
+                    }
+                    keys[slot] = oldKeys[i];
+                    values[slot] = oldValues[i];
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceChange;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * In-memory table of prices keyed by vehicle ID, authoritative for reads.
+ * Writers build the next {@link PriceSnapshot} from the current one,
+ * apply their changes and publish it, so reads never lock and always see
+ * a consistent table. The next snapshot only copies the segments a write
+ * touches, so a single write stays cheap however many prices are held.
+ * <p>
+ * Every change gets the next version number and is kept in a bounded ring
+ * so clients can catch up from the version they last saw. Versions start
+ * from the wall clock at startup, so they keep increasing across restarts.
+ * <p>
+ * Stored prices are private copies and must not be modified by callers.
+ */
+final class PriceTable {
+
+    private final PriceChange[] history;
+    private final long firstVersion;
+    private volatile PriceSnapshot snapshot;
+    private Consumer<List<PriceChange>> listener = changes -> { };
+
+    /**
+     * @param historySize number of most recent changes kept for {@link #changesSince},
+     *   at least 1
+     */
+    PriceTable(int historySize) {
+        if (historySize < 1) {
+            throw new IllegalArgumentException("pricing.feed.history must be at least 1, was " + historySize);
+        }
+        history = new PriceChange[historySize];
+        firstVersion = System.currentTimeMillis() << 20;
+        snapshot = new PriceSnapshot(firstVersion);
+    }
+
+    /**
+     * @param vehicleId ID number of the vehicle
+     * @return the price of the vehicle, or null if it has none
+     */
+    Price get(long vehicleId) {
+        return snapshot.get(vehicleId);
+    }
+
+    /**
+     * @return the number of prices in the table
+     */
+    int size() {
+        return snapshot.size();
+    }
+
+    /**
+     * @return every price as of the latest version
+     */
+    PriceSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * Adds or replaces the price of a vehicle.
+     * @param price the price, with its vehicle ID set
+     */
+    void put(Price price) {
+        update(Collections.singletonList(price), Collections.emptyList());
+    }
+
+    /**
+     * Removes the price of a vehicle, if any.
+     * @param vehicleId ID number of the vehicle
+     */
+    void remove(long vehicleId) {
+        update(Collections.emptyList(), Collections.singletonList(vehicleId));
+    }
+
+    /**
+     * Applies many changes at once; readers see either none or all of them.
+     * The listener is told about the changes before this method returns.
+     * @param puts prices to add or replace
+     * @param removals vehicle IDs whose prices to remove
+     */
+    synchronized void update(Collection<Price> puts, Collection<Long> removals) {
+        PriceSnapshot current = snapshot;
+        long version = current.getVersion();
+        PriceSnapshot next = current.next(version);
+        List<PriceChange> changes = new ArrayList<>(puts.size() + removals.size());
+        for (Price price : puts) {
+            next.put(price.getVehicleId(), new Price(price.getVehicleId(), price.getCurrency(), price.getPrice()));
+            changes.add(new PriceChange(++version, price.getVehicleId(), price.getCurrency(), price.getPrice(), false));
+        }
+        for (Long vehicleId : removals) {
+            if (next.remove(vehicleId)) {
+                changes.add(new PriceChange(++version, vehicleId, null, null, true));
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        next.setVersion(version);
+        for (PriceChange change : changes) {
+            history[(int) (change.getVersion() % history.length)] = change;
+        }
+        snapshot = next;
+        listener.accept(changes);
+    }
+
+    /**
+     * Replaces the whole content of the table without recording changes.
+     * @param prices every price to hold
+     */
+    synchronized void load(Iterable<Price> prices) {
+        long version = snapshot.getVersion();
+        PriceSnapshot next = new PriceSnapshot(version).next(version);
+        for (Price price : prices) {
+            next.put(price.getVehicleId(), new Price(price.getVehicleId(), price.getCurrency(), price.getPrice()));
+        }
+        snapshot = next;
+    }
+
+    /**
+     * @param version the last version the caller has applied
+     * @return the changes after that version, in order, or null if they are
+     *   no longer all held and the caller must start again from a snapshot
+     */
+    synchronized List<PriceChange> changesSince(long version) {
+        long current = snapshot.getVersion();
+        if (version < firstVersion || version > current || current - version > history.length) {
+            return null;
+        }
+        List<PriceChange> changes = new ArrayList<>((int) (current - version));
+        for (long next = version + 1; next <= current; next++) {
+            changes.add(history[(int) (next % history.length)]);
+        }
+        return changes;
+    }
+
+    /**
+     * @param listener told about every batch of changes, in version order,
+     *   while the table is locked; it must not block
+     */
+    synchronized void setListener(Consumer<List<PriceChange>> listener) {
+        this.listener = listener;
+    }
+}
@@ -1,55 +1,127 @@
 package com.udacity.pricing.service;
 
+import com.udacity.pricing.domain.idempotency.IdempotencyKey;
+import com.udacity.pricing.domain.idempotency.IdempotencyKeyRepository;
 import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceChange;
+import com.udacity.pricing.domain.price.PriceOutcome;
 import com.udacity.pricing.domain.price.PriceRepository;
+import com.udacity.pricing.exceptions.IdempotencyKeyException;
 import com.udacity.pricing.exceptions.PriceException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cloud.sleuth.annotation.NewSpan;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import javax.annotation.PostConstruct;
 import java.math.BigDecimal;
 import java.math.RoundingMode;
-import java.util.Map;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
-import java.util.stream.LongStream;
 
 /**
  * Implements the pricing service to get prices for each vehicle.
+ * Reads are answered from an in-memory price table, warmed from the
+ * database at startup. Writes commit to the database first, concurrently,
+ * and then copy the committed rows to the table one at a time, so the two
+ * never disagree once a write returns.
+ * Each write runs in its own span, so time spent in the database shows up
+ * in the trace of the request that made it. Idempotency keys are stored
+ * in the database with the price they wrote, so a retried write is
+ * recognised whichever instance it reaches.
  */
 @Service
 public class PricingService {
 
+    private static final Logger log = LoggerFactory.getLogger(PricingService.class);
+
     private static final String FAILURE = "Failure";
     private static final String SUCCESS = "Success";
+    private static final String UPDATE_PRICE = "UPDATE price SET currency = ?, price = ? WHERE vehicle_id = ?";
+    private static final String INSERT_PRICE = "INSERT INTO price (vehicle_id, currency, price) VALUES (?, ?, ?)";
+    private static final String DELETE_PRICE = "DELETE FROM price WHERE vehicle_id = ?";
+    private static final String INSERT_IDEMPOTENCY_KEY =
+            "INSERT INTO idempotency_key (idempotency_key, vehicle_id, currency, price, created_at) VALUES (?, ?, ?, ?, ?)";
+    private static final long IDEMPOTENCY_KEY_PURGE_INTERVAL_MS = 60 * 60 * 1000;
     private PriceRepository priceRepository;
+    private final IdempotencyKeyRepository idempotencyKeys;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final int batchSize;
+    private final Duration idempotencyKeyRetention;
+
+    /**
+     * Holds {ID: Price} pairings for every vehicle with a price
+     */
+    private final PriceTable prices;
+
+    /**
+     * Held while committed writes are copied to the price table, not while they are made
+     */
+    private final Object writeLock = new Object();
 
-    public PricingService(PriceRepository priceRepository) {
+    public PricingService(PriceRepository priceRepository,
+                          IdempotencyKeyRepository idempotencyKeys,
+                          JdbcTemplate jdbcTemplate,
+                          PlatformTransactionManager transactionManager,
+                          @Value("${pricing.bulk.batch-size:1000}") int batchSize,
+                          @Value("${pricing.feed.history:10000}") int feedHistory,
+                          @Value("${pricing.idempotency.retention-hours:24}") long idempotencyKeyRetentionHours) {
         this.priceRepository = priceRepository;
+        this.idempotencyKeys = idempotencyKeys;
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.batchSize = batchSize;
+        this.idempotencyKeyRetention = Duration.ofHours(idempotencyKeyRetentionHours);
+        this.prices = new PriceTable(feedHistory);
     }
 
     /**
-     * Holds {ID: Price} pairings (current implementation allows for 20 vehicles)
+     * Loads every stored price into the price table.
      */
-    private static final Map<Long, Price> PRICES = LongStream
-            .range(1, 20)
-            .mapToObj(i -> new Price(i, "USD", randomPrice()))
-            .collect(Collectors.toMap(Price::getVehicleId, p -> p));
+    @PostConstruct
+    public void warm() {
+        prices.load(priceRepository.findAll());
+        log.info("Loaded {} prices", prices.size());
+    }
 
     /**
-     * If a valid vehicle ID, gets the price of the vehicle from the stored array.
+     * If a valid vehicle ID, gets the price of the vehicle from the price table.
      *
      * @param vehicleId ID number of the vehicle the price is requested for.
      * @return price of the requested vehicle
      * @throws PriceException vehicleID was not found
      */
     public Price getPrice(Long vehicleId) throws PriceException {
-        Optional<Price> price = priceRepository.findById(vehicleId);
-        if (price.isEmpty()) {
+        Price price = prices.get(vehicleId);
+        if (price == null) {
             throw new PriceException("Cannot find price for Vehicle " + vehicleId);
         }
 
-        return price.get();
+        return price;
     }
 
     /**
@@ -58,8 +130,11 @@ public class PricingService {
      * @param price  Object.
      * @return saved Price object
      */
+    @NewSpan
     public Price setPrice(Price price)  {
-        return priceRepository.save(price);
+        writeTransaction(status -> upsert(Collections.singletonList(price)));
+        publish(Collections.singletonList(price.getVehicleId()));
+        return price;
     }
 
     /**
@@ -68,18 +143,258 @@ public class PricingService {
      * @param vehicleId ID number of the vehicle the price is requested for.
      * @return saved Price object
      */
+    @NewSpan
     public Price setNewPrice(Long vehicleId, String currency, Optional<BigDecimal> amount) {
-        Optional<Price> existingPrice = priceRepository.findById(vehicleId);
-        Price priceToUpdate;
-        if (existingPrice.isPresent()) {
-            priceToUpdate = existingPrice.get();
-            priceToUpdate.setCurrency((currency != null && currency.trim().length() > 0) ? currency : "USD");
-            priceToUpdate.setPrice(amount.orElseGet(PricingService::randomPrice));
-        } else {
-            priceToUpdate = new Price(vehicleId, (currency != null && currency.trim().length() > 0) ? currency : "USD", amount.orElseGet(PricingService::randomPrice));
+        return setPrice(priceToUpdate(vehicleId, currency, amount));
+    }
+
+    /**
+     * Sets the price of a vehicle. A write sent again with the same
+     * idempotency key is not applied twice: the result of the first write
+     * is returned instead, so retries are safe. The key is stored in the
+     * same transaction as the price, and its primary key makes sure only
+     * one of several concurrent writes with the same key is applied.
+     *
+     * @param vehicleId      ID number of the vehicle the price is set for.
+     * @param currency       currency of the price; defaults to USD
+     * @param amount         the price
+     * @param idempotencyKey client-chosen key identifying this write, or null
+     * @return saved Price object
+     * @throws IdempotencyKeyException the key was already used for a different write
+     */
+    @NewSpan
+    public Price putPrice(Long vehicleId, String currency, BigDecimal amount, String idempotencyKey) {
+        if (idempotencyKey == null) {
+            return setNewPrice(vehicleId, currency, Optional.of(amount));
+        }
+        Optional<IdempotencyKey> previous = idempotencyKeys.findById(idempotencyKey);
+        if (previous.isPresent()) {
+            return replay(previous.get(), vehicleId, currency, amount);
+        }
+        Price price = priceToUpdate(vehicleId, currency, Optional.of(amount));
+        try {
+            writeTransaction(status -> {
+                jdbcTemplate.update(INSERT_IDEMPOTENCY_KEY, idempotencyKey, vehicleId, currency, amount,
+                        Timestamp.from(Instant.now()));
+                upsert(Collections.singletonList(price));
+                return null;
+            });
+        } catch (DataIntegrityViolationException ex) {
+            // another write with the same key got there first, maybe on another instance
+            IdempotencyKey claimed = idempotencyKeys.findById(idempotencyKey).orElseThrow(() -> ex);
+            return replay(claimed, vehicleId, currency, amount);
+        }
+        publish(Collections.singletonList(vehicleId));
+        return price;
+    }
+
+    /**
+     * Answers a write whose idempotency key was used before with the
+     * result of the first write, if it was the same write.
+     */
+    private static Price replay(IdempotencyKey previous, Long vehicleId, String currency, BigDecimal amount) {
+        if (!previous.getVehicleId().equals(vehicleId)
+                || !Objects.equals(previous.getCurrency(), currency)
+                || previous.getPrice().compareTo(amount) != 0) {
+            throw new IdempotencyKeyException("Idempotency key " + previous.getKey() + " was used for a different price");
+        }
+        String savedCurrency = (currency != null && currency.trim().length() > 0) ? currency : "USD";
+        return new Price(vehicleId, savedCurrency, previous.getPrice());
+    }
+
+    /**
+     * Forgets idempotency keys older than "pricing.idempotency.retention-hours";
+     * writes retried after that are applied again.
+     */
+    @Scheduled(fixedDelay = IDEMPOTENCY_KEY_PURGE_INTERVAL_MS)
+    public void purgeIdempotencyKeys() {
+        int purged = idempotencyKeys.deleteCreatedBefore(Instant.now().minus(idempotencyKeyRetention));
+        if (purged > 0) {
+            log.info("Purged {} idempotency keys", purged);
+        }
+    }
+
+    private static Price priceToUpdate(Long vehicleId, String currency, Optional<BigDecimal> amount) {
+        return new Price(vehicleId, (currency != null && currency.trim().length() > 0) ? currency : "USD",
+                amount.orElseGet(PricingService::randomPrice));
+    }
+
+    /**
+     * Runs a write in a transaction. A write that inserts a price can fail
+     * because a concurrent one inserted it first; it is run once more, and
+     * then finds the row to update.
+     */
+    private <T> T writeTransaction(TransactionCallback<T> write) {
+        try {
+            return transactionTemplate.execute(write);
+        } catch (DuplicateKeyException ex) {
+            log.debug("Price inserted concurrently, writing again", ex);
+            return transactionTemplate.execute(write);
+        }
+    }
+
+    /**
+     * Creates or replaces prices with plain SQL any database accepts:
+     * every price is first updated with JDBC batches, and those that
+     * matched no row are then inserted. Must run in a transaction.
+     *
+     * @param newPrices prices to write, at most one per vehicle
+     * @return the number of prices inserted rather than updated
+     */
+    private int upsert(List<Price> newPrices) {
+        int[][] counts = jdbcTemplate.batchUpdate(UPDATE_PRICE, newPrices, batchSize, (ps, price) -> {
+            ps.setString(1, price.getCurrency());
+            ps.setBigDecimal(2, price.getPrice());
+            ps.setLong(3, price.getVehicleId());
+        });
+        List<Price> missing = new ArrayList<>();
+        int item = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                Price price = newPrices.get(item++);
+                if (count == 0 || (count == Statement.SUCCESS_NO_INFO && !priceRepository.existsById(price.getVehicleId()))) {
+                    missing.add(price);
+                }
+            }
+        }
+        if (!missing.isEmpty()) {
+            jdbcTemplate.batchUpdate(INSERT_PRICE, missing, batchSize, (ps, price) -> {
+                ps.setLong(1, price.getVehicleId());
+                ps.setString(2, price.getCurrency());
+                ps.setBigDecimal(3, price.getPrice());
+            });
+        }
+        return missing.size();
+    }
+
+    /**
+     * Copies the committed prices of the given vehicles to the price table,
+     * removing those that have none. Rows are read back once committed, so
+     * when two writes to the same vehicle are copied in a different order
+     * than they committed, the later copy still holds the later price.
+     *
+     * @param vehicleIds ID numbers of the vehicles just written
+     */
+    private void publish(List<Long> vehicleIds) {
+        synchronized (writeLock) {
+            List<Price> committed = new ArrayList<>(vehicleIds.size());
+            for (int from = 0; from < vehicleIds.size(); from += batchSize) {
+                priceRepository.findAllById(vehicleIds.subList(from, Math.min(from + batchSize, vehicleIds.size())))
+                        .forEach(committed::add);
+            }
+            Set<Long> removed = new HashSet<>(vehicleIds);
+            committed.forEach(price -> removed.remove(price.getVehicleId()));
+            prices.update(committed, removed);
         }
+    }
+
+    /**
+     * Saves many prices with JDBC batches in a single transaction, then
+     * applies them to the price table at once. Invalid items are reported
+     * and skipped; when a vehicle occurs more than once, its last price is
+     * saved. If the transaction fails, no price is saved.
+     *
+     * @param newPrices prices to create or replace; currency defaults to USD
+     * @return one outcome per item, in request order
+     */
+    @NewSpan
+    public List<PriceOutcome> setPrices(List<Price> newPrices) {
+        List<PriceOutcome> outcomes = new ArrayList<>(newPrices.size());
+        List<Price> valid = new ArrayList<>(newPrices.size());
+        for (Price price : newPrices) {
+            String problem = validate(price);
+            if (problem != null) {
+                outcomes.add(new PriceOutcome(price != null ? price.getVehicleId() : null, FAILURE, problem));
+                continue;
+            }
+            String currency = (price.getCurrency() != null && price.getCurrency().trim().length() > 0) ? price.getCurrency() : "USD";
+            valid.add(new Price(price.getVehicleId(), currency, price.getPrice()));
+            outcomes.add(new PriceOutcome(price.getVehicleId(), SUCCESS, null));
+        }
+        if (valid.isEmpty()) {
+            return outcomes;
+        }
+        List<Price> distinct = new ArrayList<>(valid.stream()
+                .collect(Collectors.toMap(Price::getVehicleId, price -> price, (first, last) -> last, LinkedHashMap::new))
+                .values());
+        try {
+            writeTransaction(status -> upsert(distinct));
+        } catch (DataAccessException ex) {
+            log.error("Bulk price update of {} items rolled back", valid.size(), ex);
+            rollBack(outcomes, ex);
+            return outcomes;
+        }
+        publish(distinct.stream().map(Price::getVehicleId).collect(Collectors.toList()));
+        return outcomes;
+    }
+
+    /**
+     * Deletes many prices with JDBC batch deletes in a single transaction,
+     * then removes them from the price table at once.
+     *
+     * @param vehicleIds ID numbers of the vehicles whose prices to delete
+     * @return one outcome per item, in request order
+     */
+    @NewSpan
+    public List<PriceOutcome> deletePrices(List<Long> vehicleIds) {
+        List<PriceOutcome> outcomes = new ArrayList<>(vehicleIds.size());
+        List<Long> valid = new ArrayList<>(vehicleIds.size());
+        for (Long vehicleId : vehicleIds) {
+            if (vehicleId == null) {
+                outcomes.add(new PriceOutcome(null, FAILURE, "vehicleId is required"));
+            } else {
+                valid.add(vehicleId);
+                outcomes.add(new PriceOutcome(vehicleId, SUCCESS, null));
+            }
+        }
+        if (valid.isEmpty()) {
+            return outcomes;
+        }
+        Set<Long> deleted = new LinkedHashSet<>();
+        try {
+            int[][] counts = transactionTemplate.execute(status -> jdbcTemplate.batchUpdate(DELETE_PRICE, valid, batchSize,
+                    (ps, vehicleId) -> ps.setLong(1, vehicleId)));
+            int item = 0;
+            for (int[] batch : counts) {
+                for (int count : batch) {
+                    if (count != 0) {
+                        deleted.add(valid.get(item));
+                    }
+                    item++;
+                }
+            }
+        } catch (DataAccessException ex) {
+            log.error("Bulk price delete of {} items rolled back", valid.size(), ex);
+            rollBack(outcomes, ex);
+            return outcomes;
+        }
+        for (PriceOutcome outcome : outcomes) {
+            if (SUCCESS.equals(outcome.getStatus()) && !deleted.contains(outcome.getVehicleId())) {
+                outcome.setStatus(FAILURE);
+                outcome.setMessage("Cannot find price for Vehicle " + outcome.getVehicleId());
+            }
+        }
+        publish(new ArrayList<>(deleted));
+        return outcomes;
+    }
+
+    private static String validate(Price price) {
+        if (price == null || price.getVehicleId() == null) {
+            return "vehicleId is required";
+        }
+        if (price.getPrice() == null || price.getPrice().signum() < 0) {
+            return "price must be zero or positive";
+        }
+        return null;
+    }
 
-        return priceRepository.save(priceToUpdate);
+    private static void rollBack(List<PriceOutcome> outcomes, DataAccessException ex) {
+        for (PriceOutcome outcome : outcomes) {
+            if (SUCCESS.equals(outcome.getStatus())) {
+                outcome.setStatus(FAILURE);
+                outcome.setMessage("Batch rolled back: " + ex.getMostSpecificCause().getMessage());
+            }
+        }
     }
 
     /**
@@ -98,14 +413,13 @@ public class PricingService {
      * @param vehicleId ID number of the vehicle the price is requested for.
      * @return saved Price object
      */
+    @NewSpan
     public String delete(Long vehicleId) {
         try{
-            Optional<Price> price = priceRepository.findById(vehicleId);
-            if (price.isEmpty()) {
+            if (jdbcTemplate.update(DELETE_PRICE, vehicleId) == 0) {
                 throw new PriceException("Cannot find price for Vehicle " + vehicleId);
-            }else{
-                priceRepository.delete(price.get());
             }
+            publish(Collections.singletonList(vehicleId));
         }catch (Exception ex){
             return FAILURE;
         }
@@ -113,7 +427,50 @@ public class PricingService {
 
     }
 
+    /**
+     * Gets every price at once, as of a single version.
+     *
+     * @return an immutable snapshot of the price table
+     */
+    public PriceSnapshot snapshot() {
+        return prices.snapshot();
+    }
+
+    /**
+     * Gets the price changes made after a version.
+     *
+     * @param version the last version the caller has applied
+     * @return the changes after that version, in order, or null if they are
+     * no longer held and the caller must start again from a snapshot
+     */
+    public List<PriceChange> changesSince(long version) {
+        return prices.changesSince(version);
+    }
+
+    /**
+     * Registers the listener told about every change to the price table.
+     *
+     * @param listener receives each batch of changes in version order;
+     *                 it is called while writes are serialised and must not block
+     */
+    public void onChange(Consumer<List<PriceChange>> listener) {
+        prices.setListener(listener);
+    }
+
+    /**
+     * Gets the prices of many vehicles from the price table.
+     *
+     * @param vehicleList ID numbers of the vehicles the prices are requested for.
+     * @return the prices found; vehicles without a price are left out
+     */
     public Set<Price> getPriceList(Set<Long> vehicleList) {
-        return priceRepository.findByVehicleIdIn(vehicleList);
+        Set<Price> found = new HashSet<>();
+        for (Long vehicleId : vehicleList) {
+            Price price = prices.get(vehicleId);
+            if (price != null) {
+                found.add(price);
+            }
+        }
+        return found;
     }
 }
@@ -1,6 +1,7 @@
 package com.udacity.pricing;
 
 import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceOutcome;
 import com.udacity.pricing.exceptions.PriceException;
 import com.udacity.pricing.service.PricingService;
 import org.junit.Before;
@@ -12,18 +13,23 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
 import java.math.BigDecimal;
+import java.util.Arrays;
 
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.verify;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 @RunWith(SpringRunner.class)
@@ -70,6 +76,22 @@ public class PricingServiceApplicationTests {
 	}
 
 
+	/**
+	 * Tests that a conditional request with a current ETag is answered with 304
+	 *
+	 * @throws Exception when the request fails in the system
+	 */
+	@Test
+	public void findUnmodifiedPrice() throws Exception {
+		String etag = mvc.perform(get("/services/price").param("vehicleId", "1"))
+				.andExpect(status().isOk())
+				.andExpect(header().exists("Cache-Control"))
+				.andReturn().getResponse().getHeader("ETag");
+		mvc.perform(get("/services/price").param("vehicleId", "1").header("If-None-Match", etag))
+				.andExpect(status().isNotModified())
+				.andExpect(content().string(""));
+	}
+
 	/**
 	 * Tests for finding price for a given vehicleId
 	 *
@@ -85,6 +107,25 @@ public class PricingServiceApplicationTests {
 		verify(pricingService, times(1)).getPrice(100L);
 	}
 
+	/**
+	 * Tests that a bulk update reports one outcome per price
+	 *
+	 * @throws Exception when the bulk request fails in the system
+	 */
+	@Test
+	public void setPricesInBulk() throws Exception {
+		given(pricingService.setPrices(anyList())).willReturn(Arrays.asList(
+				new PriceOutcome(1L, "Success", null),
+				new PriceOutcome(null, "Failure", "vehicleId is required")));
+		mvc.perform(post("/services/price/bulk")
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("[{\"vehicleId\":1,\"currency\":\"USD\",\"price\":20000},{\"price\":1}]"))
+				.andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$[0].status").value("Success"))
+				.andExpect(MockMvcResultMatchers.jsonPath("$[1].status").value("Failure"));
+		verify(pricingService, times(1)).setPrices(anyList());
+	}
+
 	/**
 	 * Creates an example Price object for use in testing.
 	 *
@@ -0,0 +1,94 @@
+package com.udacity.pricing.controller;
+
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.service.PricingService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+
+/**
+ * Tests the /services/price/changes stream against the real price table.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PriceFeedTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private PricingService pricingService;
+
+	/**
+	 * Tests that a client reconnecting with Last-Event-ID gets the changes
+	 * after that event, taking precedence over the since parameter.
+	 */
+	@Test
+	public void resumesFromLastEventId() throws Exception {
+		long before = pricingService.snapshot().getVersion();
+		pricingService.setPrices(Arrays.asList(
+				new Price(5001L, "USD", new BigDecimal("1000.00")),
+				new Price(5002L, "USD", new BigDecimal("2000.00"))));
+
+		MvcResult result = mvc.perform(get("/services/price/changes")
+				.param("since", String.valueOf(before))
+				.header("Last-Event-ID", String.valueOf(before + 1)))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		String events = awaitEvents(result, "\"vehicleId\":5002");
+		assertTrue(events.contains("id:" + (before + 2) + "\n"));
+		assertTrue(events.contains("event:change"));
+		assertFalse(events.contains("id:" + (before + 1) + "\n"));
+		assertFalse(events.contains("\"vehicleId\":5001"));
+	}
+
+	/**
+	 * Tests that a client asking for changes older than those still held
+	 * gets a single reset event with the current version.
+	 */
+	@Test
+	public void resetsWhenChangesAreNoLongerHeld() throws Exception {
+		long current = pricingService.snapshot().getVersion();
+
+		MvcResult result = mvc.perform(get("/services/price/changes").param("since", "1"))
+				.andExpect(request().asyncStarted())
+				.andReturn();
+
+		String events = awaitEvents(result, "event:reset");
+		assertTrue(events.contains("id:" + current + "\n"));
+		assertTrue(events.contains("data:" + current + "\n"));
+		assertFalse(events.contains("event:change"));
+	}
+
+	/**
+	 * Waits for the feed's dispatcher thread to write the expected text.
+	 *
+	 * @return the events written so far
+	 */
+	private static String awaitEvents(MvcResult result, String expected) throws Exception {
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+		String events = result.getResponse().getContentAsString();
+		while (!events.contains(expected) && System.nanoTime() < deadline) {
+			Thread.sleep(10);
+			events = result.getResponse().getContentAsString();
+		}
+		assertTrue("no " + expected + " in: " + events, events.contains(expected));
+		return events;
+	}
+}
@@ -0,0 +1,109 @@
+package com.udacity.pricing.controller;
+
+import com.udacity.pricing.domain.price.PriceRepository;
+import com.udacity.pricing.service.PricingService;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.junit4.SpringRunner;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+
+import java.math.BigDecimal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.put;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Tests the price write endpoints against the real service and database.
+ * Each test uses its own vehicle IDs, as the database is shared.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+@AutoConfigureMockMvc
+public class PricingControllerTest {
+
+	@Autowired
+	private MockMvc mvc;
+
+	@Autowired
+	private PricingService pricingService;
+
+	@Autowired
+	private PriceRepository priceRepository;
+
+	/**
+	 * Tests that a PUT sent again with the same Idempotency-Key returns the
+	 * first result and writes nothing, even after another write changed
+	 * the price in between.
+	 */
+	@Test
+	public void repeatedPutReturnsFirstResult() throws Exception {
+		mvc.perform(put("/services/price/{vehicleId}", 6001L)
+				.header("Idempotency-Key", "key-6001")
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"currency\":\"USD\",\"price\":1000.00}"))
+				.andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.price").value(1000.00));
+		mvc.perform(put("/services/price/{vehicleId}", 6001L)
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"currency\":\"USD\",\"price\":2000.00}"))
+				.andExpect(status().isOk());
+		long version = pricingService.snapshot().getVersion();
+
+		mvc.perform(put("/services/price/{vehicleId}", 6001L)
+				.header("Idempotency-Key", "key-6001")
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"currency\":\"USD\",\"price\":1000.00}"))
+				.andExpect(status().isOk())
+				.andExpect(MockMvcResultMatchers.jsonPath("$.vehicleId").value(6001))
+				.andExpect(MockMvcResultMatchers.jsonPath("$.price").value(1000.00));
+
+		assertEquals(version, pricingService.snapshot().getVersion());
+		assertEquals(0, new BigDecimal("2000.00").compareTo(priceRepository.findById(6001L).get().getPrice()));
+		assertEquals(0, new BigDecimal("2000.00").compareTo(pricingService.getPrice(6001L).getPrice()));
+	}
+
+	/**
+	 * Tests that reusing an Idempotency-Key for a different price is
+	 * rejected with 422 and writes nothing.
+	 */
+	@Test
+	public void reusedKeyForDifferentPriceIsRejected() throws Exception {
+		mvc.perform(put("/services/price/{vehicleId}", 6002L)
+				.header("Idempotency-Key", "key-6002")
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"currency\":\"USD\",\"price\":1000.00}"))
+				.andExpect(status().isOk());
+		long version = pricingService.snapshot().getVersion();
+
+		mvc.perform(put("/services/price/{vehicleId}", 6002L)
+				.header("Idempotency-Key", "key-6002")
+				.contentType(MediaType.APPLICATION_JSON_UTF8)
+				.content("{\"currency\":\"USD\",\"price\":3000.00}"))
+				.andExpect(status().isUnprocessableEntity());
+
+		assertEquals(version, pricingService.snapshot().getVersion());
+		assertEquals(0, new BigDecimal("1000.00").compareTo(priceRepository.findById(6002L).get().getPrice()));
+	}
+
+	/**
+	 * Tests that the removed state-changing GET is refused and writes nothing.
+	 */
+	@Test
+	public void getNewPriceIsNotAllowed() throws Exception {
+		mvc.perform(get("/services/price/getNewPrice")
+				.param("vehicleId", "6003")
+				.param("currency", "USD")
+				.param("amount", "1000.00"))
+				.andExpect(status().isMethodNotAllowed());
+
+		assertFalse(priceRepository.findById(6003L).isPresent());
+	}
+}
@@ -0,0 +1,186 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the segmented hash table behind PriceSnapshot.
+ */
+public class PriceSnapshotTest {
+
+	/**
+	 * Tests random puts and removals, over few and over many keys, against
+	 * a HashMap, publishing a new snapshot every few changes as the price
+	 * table does.
+	 */
+	@Test
+	public void matchesHashMap() {
+		Random random = new Random(42);
+		for (int keys : new int[]{50, 5000, 50000}) {
+			Map<Long, Price> expected = new HashMap<>();
+			PriceSnapshot snapshot = new PriceSnapshot(0).next(0);
+			for (int i = 0; i < keys * 3; i++) {
+				if (i % 7 == 0) {
+					snapshot = snapshot.next(i);
+				}
+				long key = random.nextInt(keys) - keys / 10;
+				if (random.nextInt(3) == 0) {
+					assertEquals(expected.remove(key) != null, snapshot.remove(key));
+				} else {
+					Price price = price(key, i);
+					snapshot.put(key, price);
+					expected.put(key, price);
+				}
+			}
+			assertSameContent(expected, snapshot);
+		}
+	}
+
+	/**
+	 * Tests that writing to the next snapshot leaves the one it was made
+	 * from unchanged, for puts, replacements and removals alike.
+	 */
+	@Test
+	public void nextLeavesPublishedSnapshotUnchanged() {
+		PriceSnapshot published = new PriceSnapshot(0).next(0);
+		Map<Long, Price> expected = new HashMap<>();
+		for (long key = 1; key <= 10000; key++) {
+			Price price = price(key, 1);
+			published.put(key, price);
+			expected.put(key, price);
+		}
+
+		PriceSnapshot next = published.next(1);
+		for (long key = 1; key <= 10000; key += 3) {
+			next.put(key, price(key, 2));
+		}
+		for (long key = 2; key <= 10000; key += 3) {
+			next.remove(key);
+		}
+		for (long key = 10001; key <= 12000; key++) {
+			next.put(key, price(key, 2));
+		}
+
+		assertSameContent(expected, published);
+		assertEquals(0, published.getVersion());
+		assertEquals(1, next.getVersion());
+		assertEquals(10000 - 3333 + 2000, next.size());
+		assertEquals(0, new BigDecimal("2.00").compareTo(next.get(1L).getPrice()));
+		assertNull(next.get(2L));
+		assertEquals(0, new BigDecimal("1.00").compareTo(next.get(3L).getPrice()));
+	}
+
+	/**
+	 * Tests that a removal shifts back the rest of a probe run that wraps
+	 * from the last slot of a segment to the first, so every key in it is
+	 * still found and no tombstone is left.
+	 */
+	@Test
+	public void removeInWrappedProbeRun() {
+		PriceSnapshot.Segment segment = new PriceSnapshot.Segment(16);
+		long[] run = keysWithHomeSlot(segment, 15, 3);
+		long[] second = keysWithHomeSlot(segment, 0, 1);
+		for (long key : run) {
+			segment.put(key, PriceSnapshot.hash(key), price(key, 1));
+		}
+		segment.put(second[0], PriceSnapshot.hash(second[0]), price(second[0], 1));
+		// slots 15, 0, 1 hold the run homed at 15; slot 2 holds the key homed at 0
+		assertEquals(run[0], segment.keys[15]);
+		assertEquals(run[1], segment.keys[0]);
+		assertEquals(run[2], segment.keys[1]);
+		assertEquals(second[0], segment.keys[2]);
+
+		segment.remove(run[0], PriceSnapshot.hash(run[0]));
+
+		assertEquals(run[1], segment.keys[15]);
+		assertEquals(run[2], segment.keys[0]);
+		assertEquals(second[0], segment.keys[1]);
+		assertNull(segment.values[2]);
+		assertNull(segment.get(run[0], PriceSnapshot.hash(run[0])));
+		for (long key : new long[]{run[1], run[2], second[0]}) {
+			assertEquals(key, (long) segment.get(key, PriceSnapshot.hash(key)).getVehicleId());
+		}
+	}
+
+	/**
+	 * Tests that a removal in a wrapped run leaves in place an entry that
+	 * is already at its home slot, past the hole.
+	 */
+	@Test
+	public void removeInWrappedProbeRunKeepsEntryAtHome() {
+		PriceSnapshot.Segment segment = new PriceSnapshot.Segment(16);
+		long[] run = keysWithHomeSlot(segment, 14, 2);
+		long[] atHome = keysWithHomeSlot(segment, 0, 1);
+		segment.put(run[0], PriceSnapshot.hash(run[0]), price(run[0], 1));
+		segment.put(run[1], PriceSnapshot.hash(run[1]), price(run[1], 1));
+		segment.put(atHome[0], PriceSnapshot.hash(atHome[0]), price(atHome[0], 1));
+		assertEquals(atHome[0], segment.keys[0]);
+
+		segment.remove(run[0], PriceSnapshot.hash(run[0]));
+
+		assertEquals(run[1], segment.keys[14]);
+		assertNull(segment.values[15]);
+		assertEquals(atHome[0], segment.keys[0]);
+		assertEquals(run[1], (long) segment.get(run[1], PriceSnapshot.hash(run[1])).getVehicleId());
+		assertEquals(atHome[0], (long) segment.get(atHome[0], PriceSnapshot.hash(atHome[0])).getVehicleId());
+	}
+
+	/**
+	 * Tests that removing a key that is not held changes nothing.
+	 */
+	@Test
+	public void removeMissingKey() {
+		PriceSnapshot snapshot = new PriceSnapshot(0).next(0);
+		assertFalse(snapshot.remove(1L));
+		snapshot.put(1L, price(1L, 1));
+		assertFalse(snapshot.remove(2L));
+		assertEquals(1, snapshot.size());
+		assertTrue(snapshot.remove(1L));
+		assertEquals(0, snapshot.size());
+		assertFalse(snapshot.iterator().hasNext());
+	}
+
+	private static void assertSameContent(Map<Long, Price> expected, PriceSnapshot snapshot) {
+		assertEquals(expected.size(), snapshot.size());
+		for (Map.Entry<Long, Price> entry : expected.entrySet()) {
+			assertSame(entry.getValue(), snapshot.get(entry.getKey()));
+		}
+		Set<Long> seen = new HashSet<>();
+		for (Price price : snapshot) {
+			assertTrue(seen.add(price.getVehicleId()));
+			assertSame(expected.get(price.getVehicleId()), price);
+		}
+		assertEquals(expected.size(), seen.size());
+	}
+
+	/**
+	 * @return the first keys whose home in the given segment is the given slot
+	 */
+	private static long[] keysWithHomeSlot(PriceSnapshot.Segment segment, int slot, int count) {
+		long[] keys = new long[count];
+		int found = 0;
+		for (long key = 1; found < count; key++) {
+			if (segment.slot(PriceSnapshot.hash(key)) == slot) {
+				keys[found++] = key;
+			}
+		}
+		return keys;
+	}
+
+	private static Price price(long vehicleId, int amount) {
+		return new Price(vehicleId, "USD", BigDecimal.valueOf(amount * 100L, 2));
+	}
+}
@@ -0,0 +1,167 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceChange;
+import org.junit.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests the versioned writes of PriceTable.
+ */
+public class PriceTableTest {
+
+	/**
+	 * Tests that a snapshot taken before a write keeps its content and
+	 * version, while the table moves on to the next version.
+	 */
+	@Test
+	public void writesLeaveEarlierSnapshotsUnchanged() {
+		PriceTable table = new PriceTable(100);
+		table.load(Arrays.asList(price(1L, "10.00"), price(2L, "20.00")));
+		PriceSnapshot before = table.snapshot();
+
+		table.put(price(1L, "11.00"));
+		table.remove(2L);
+		table.put(price(3L, "30.00"));
+
+		assertEquals(2, before.size());
+		assertEquals(0, new BigDecimal("10.00").compareTo(before.get(1L).getPrice()));
+		assertEquals(0, new BigDecimal("20.00").compareTo(before.get(2L).getPrice()));
+		assertNull(before.get(3L));
+
+		PriceSnapshot after = table.snapshot();
+		assertEquals(before.getVersion() + 3, after.getVersion());
+		assertEquals(2, after.size());
+		assertEquals(0, new BigDecimal("11.00").compareTo(table.get(1L).getPrice()));
+		assertNull(table.get(2L));
+		assertEquals(0, new BigDecimal("30.00").compareTo(table.get(3L).getPrice()));
+	}
+
+	/**
+	 * Tests that a batch is published as one snapshot, with one version
+	 * per change, and that removals of prices not held are not changes.
+	 */
+	@Test
+	public void updateAppliesBatchAtOnce() {
+		PriceTable table = new PriceTable(100);
+		table.load(Collections.singletonList(price(1L, "10.00")));
+		List<List<PriceChange>> told = new ArrayList<>();
+		table.setListener(told::add);
+		long version = table.snapshot().getVersion();
+
+		table.update(Arrays.asList(price(2L, "20.00"), price(3L, "30.00")), Arrays.asList(1L, 99L));
+
+		assertEquals(1, told.size());
+		List<PriceChange> changes = told.get(0);
+		assertEquals(3, changes.size());
+		assertEquals(version + 1, changes.get(0).getVersion());
+		assertEquals(2L, (long) changes.get(0).getVehicleId());
+		assertEquals(version + 2, changes.get(1).getVersion());
+		assertEquals(version + 3, changes.get(2).getVersion());
+		assertEquals(1L, (long) changes.get(2).getVehicleId());
+		assertTrue(changes.get(2).isDeleted());
+		assertEquals(version + 3, table.snapshot().getVersion());
+		assertEquals(2, table.size());
+	}
+
+	/**
+	 * Tests that a write which changes nothing publishes no new version.
+	 */
+	@Test
+	public void removeOfMissingPriceIsNotAChange() {
+		PriceTable table = new PriceTable(100);
+		PriceSnapshot before = table.snapshot();
+
+		table.remove(1L);
+
+		assertSame(before, table.snapshot());
+	}
+
+	/**
+	 * Tests that the table keeps its own copy of every price it is given.
+	 */
+	@Test
+	public void storesPrivateCopies() {
+		PriceTable table = new PriceTable(100);
+		Price price = price(1L, "10.00");
+
+		table.put(price);
+		price.setPrice(new BigDecimal("99.00"));
+
+		assertNotSame(price, table.get(1L));
+		assertEquals(0, new BigDecimal("10.00").compareTo(table.get(1L).getPrice()));
+	}
+
+	/**
+	 * Tests changesSince at the edge of the ring: every change after a
+	 * version is returned while no more than "history" changes have been
+	 * made since, and null once one more has overwritten the oldest.
+	 */
+	@Test
+	public void changesSinceAtRingBoundary() {
+		PriceTable table = new PriceTable(4);
+		long start = table.snapshot().getVersion();
+		for (long vehicleId = 1; vehicleId <= 4; vehicleId++) {
+			table.put(price(vehicleId, "10.00"));
+		}
+
+		List<PriceChange> all = table.changesSince(start);
+		assertEquals(4, all.size());
+		for (int i = 0; i < 4; i++) {
+			assertEquals(start + 1 + i, all.get(i).getVersion());
+			assertEquals(i + 1, (long) all.get(i).getVehicleId());
+		}
+
+		table.put(price(5L, "10.00"));
+
+		assertNull(table.changesSince(start));
+		List<PriceChange> latest = table.changesSince(start + 1);
+		assertEquals(4, latest.size());
+		assertEquals(start + 2, latest.get(0).getVersion());
+		assertEquals(start + 5, latest.get(3).getVersion());
+		assertEquals(5L, (long) latest.get(3).getVehicleId());
+	}
+
+	/**
+	 * Tests that a caller already at the current version gets no changes,
+	 * and one claiming a version newer than the current one, or older than
+	 * the table itself, must start again from a snapshot.
+	 */
+	@Test
+	public void changesSinceOutsideKnownVersions() {
+		PriceTable table = new PriceTable(100);
+		long start = table.snapshot().getVersion();
+		table.put(price(1L, "10.00"));
+		long current = table.snapshot().getVersion();
+
+		assertTrue(table.changesSince(current).isEmpty());
+		assertNull(table.changesSince(current + 1));
+		assertNull(table.changesSince(Long.MAX_VALUE));
+		assertNull(table.changesSince(start - 1));
+		assertEquals(1, table.changesSince(start).size());
+	}
+
+	/**
+	 * Tests that a table without room for a single change is rejected up
+	 * front rather than failing on its first write.
+	 */
+	@Test(expected = IllegalArgumentException.class)
+	public void historyMustHoldAChange() {
+		new PriceTable(0);
+	}
+
+	private static Price price(long vehicleId, String amount) {
+		return new Price(vehicleId, "USD", new BigDecimal(amount));
+	}
+}
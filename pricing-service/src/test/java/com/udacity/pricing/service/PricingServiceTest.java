@@ -0,0 +1,307 @@
+package com.udacity.pricing.service;
+
+import com.udacity.pricing.domain.idempotency.IdempotencyKey;
+import com.udacity.pricing.domain.idempotency.IdempotencyKeyRepository;
+import com.udacity.pricing.domain.price.Price;
+import com.udacity.pricing.domain.price.PriceOutcome;
+import com.udacity.pricing.domain.price.PriceRepository;
+import com.udacity.pricing.exceptions.IdempotencyKeyException;
+import com.udacity.pricing.exceptions.PriceException;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests the bulk writes of PricingService against the H2 database. The
+ * batch size is set to 2 so that every request below spans several JDBC
+ * batches. Each test uses its own vehicle IDs, as the database is shared.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest(properties = "pricing.bulk.batch-size=2")
+public class PricingServiceTest {
+
+	@Autowired
+	private PricingService pricingService;
+
+	@Autowired
+	private PriceRepository priceRepository;
+
+	@Autowired
+	private IdempotencyKeyRepository idempotencyKeyRepository;
+
+	/**
+	 * Tests that a batch mixing valid and invalid items saves the valid
+	 * ones, new and existing alike, and reports the invalid ones in place.
+	 */
+	@Test
+	public void setPricesSkipsInvalidItems() throws PriceException {
+		List<PriceOutcome> outcomes = pricingService.setPrices(Arrays.asList(
+				new Price(1L, "EUR", new BigDecimal("1000.00")),
+				new Price(null, "USD", new BigDecimal("1.00")),
+				new Price(1001L, null, new BigDecimal("2000.00")),
+				new Price(1002L, "USD", new BigDecimal("-1.00")),
+				new Price(1003L, "USD", new BigDecimal("3000.00"))));
+
+		assertEquals(5, outcomes.size());
+		assertOutcome(outcomes.get(0), 1L, "Success");
+		assertOutcome(outcomes.get(1), null, "Failure");
+		assertEquals("vehicleId is required", outcomes.get(1).getMessage());
+		assertOutcome(outcomes.get(2), 1001L, "Success");
+		assertOutcome(outcomes.get(3), 1002L, "Failure");
+		assertEquals("price must be zero or positive", outcomes.get(3).getMessage());
+		assertOutcome(outcomes.get(4), 1003L, "Success");
+
+		assertStored(1L, "EUR", "1000.00");
+		assertStored(1001L, "USD", "2000.00");
+		assertStored(1003L, "USD", "3000.00");
+		assertFalse(priceRepository.findById(1002L).isPresent());
+	}
+
+	/**
+	 * Tests that when the database rejects one item, the whole request is
+	 * rolled back, including batches already sent, and every item that was
+	 * going to be saved is reported as failed.
+	 */
+	@Test
+	public void setPricesRollsBackOnDatabaseError() throws PriceException {
+		BigDecimal before = pricingService.getPrice(2L).getPrice();
+		String tooLong = String.join("", Collections.nCopies(300, "X"));
+
+		List<PriceOutcome> outcomes = pricingService.setPrices(Arrays.asList(
+				new Price(2L, "USD", new BigDecimal("1.00")),
+				new Price(2001L, "USD", new BigDecimal("2.00")),
+				new Price(null, "USD", new BigDecimal("3.00")),
+				new Price(2002L, tooLong, new BigDecimal("4.00"))));
+
+		assertOutcome(outcomes.get(0), 2L, "Failure");
+		assertTrue(outcomes.get(0).getMessage().startsWith("Batch rolled back: "));
+		assertOutcome(outcomes.get(1), 2001L, "Failure");
+		assertOutcome(outcomes.get(2), null, "Failure");
+		assertEquals("vehicleId is required", outcomes.get(2).getMessage());
+		assertOutcome(outcomes.get(3), 2002L, "Failure");
+
+		assertEquals(0, before.compareTo(priceRepository.findById(2L).get().getPrice()));
+		assertEquals(0, before.compareTo(pricingService.getPrice(2L).getPrice()));
+		assertFalse(priceRepository.findById(2001L).isPresent());
+		assertPriceNotFound(2001L);
+	}
+
+	/**
+	 * Tests that a vehicle sent twice in one request, new or not, is
+	 * saved once with the last of its prices.
+	 */
+	@Test
+	public void setPricesKeepsLastPriceOfRepeatedVehicle() throws PriceException {
+		List<PriceOutcome> outcomes = pricingService.setPrices(Arrays.asList(
+				new Price(5L, "USD", new BigDecimal("1000.00")),
+				new Price(2101L, "USD", new BigDecimal("2000.00")),
+				new Price(5L, "EUR", new BigDecimal("3000.00")),
+				new Price(2101L, "EUR", new BigDecimal("4000.00"))));
+
+		assertTrue(outcomes.stream().allMatch(outcome -> "Success".equals(outcome.getStatus())));
+		assertStored(5L, "EUR", "3000.00");
+		assertStored(2101L, "EUR", "4000.00");
+	}
+
+	/**
+	 * Tests that concurrent writes to the same vehicles, which commit
+	 * without waiting for each other, leave the price table holding what
+	 * the database holds.
+	 */
+	@Test
+	public void concurrentWritesLeaveTableAsCommitted() throws Exception {
+		int writers = 8;
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			List<Future<?>> results = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				BigDecimal amount = new BigDecimal(1000 + i);
+				results.add(executor.submit(() -> {
+					start.await();
+					for (int round = 0; round < 20; round++) {
+						pricingService.setPrices(Arrays.asList(new Price(2201L, "USD", amount), new Price(2202L, "USD", amount)));
+						pricingService.putPrice(2203L, "USD", amount, null);
+					}
+					return null;
+				}));
+			}
+			start.countDown();
+			for (Future<?> result : results) {
+				result.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (long vehicleId = 2201L; vehicleId <= 2203L; vehicleId++) {
+			Price stored = priceRepository.findById(vehicleId).get();
+			assertStored(vehicleId, "USD", stored.getPrice().toPlainString());
+		}
+	}
+
+	/**
+	 * Tests that deleting IDs with no price reports them as failures, in
+	 * place, while the prices that exist are deleted.
+	 */
+	@Test
+	public void deletePricesReportsMissingIds() {
+		List<PriceOutcome> outcomes = pricingService.deletePrices(Arrays.asList(3L, 3001L, null, 4L));
+
+		assertEquals(4, outcomes.size());
+		assertOutcome(outcomes.get(0), 3L, "Success");
+		assertOutcome(outcomes.get(1), 3001L, "Failure");
+		assertEquals("Cannot find price for Vehicle 3001", outcomes.get(1).getMessage());
+		assertOutcome(outcomes.get(2), null, "Failure");
+		assertOutcome(outcomes.get(3), 4L, "Success");
+
+		assertFalse(priceRepository.findById(3L).isPresent());
+		assertFalse(priceRepository.findById(4L).isPresent());
+		assertPriceNotFound(3L);
+		assertPriceNotFound(4L);
+	}
+
+	/**
+	 * Tests that a delete of IDs none of which has a price changes nothing.
+	 */
+	@Test
+	public void deletePricesOfMissingIdsOnly() {
+		long count = priceRepository.count();
+
+		List<PriceOutcome> outcomes = pricingService.deletePrices(Arrays.asList(4001L, 4002L));
+
+		assertOutcome(outcomes.get(0), 4001L, "Failure");
+		assertOutcome(outcomes.get(1), 4002L, "Failure");
+		assertEquals(count, priceRepository.count());
+	}
+
+	/**
+	 * Tests that a keyed write stores its key with the price it wrote.
+	 */
+	@Test
+	public void putPriceStoresIdempotencyKey() {
+		Price saved = pricingService.putPrice(5001L, null, new BigDecimal("1000.00"), "key-5001");
+
+		assertEquals("USD", saved.getCurrency());
+		IdempotencyKey key = idempotencyKeyRepository.findById("key-5001").get();
+		assertEquals(Long.valueOf(5001L), key.getVehicleId());
+		assertEquals(0, new BigDecimal("1000.00").compareTo(key.getPrice()));
+	}
+
+	/**
+	 * Tests that a key stored by another instance, which this one never
+	 * saw, is recognised: the write is answered with the first result and
+	 * not applied, and a different write with the key is rejected.
+	 */
+	@Test
+	public void putPriceWithKeyStoredElsewhere() throws PriceException {
+		pricingService.putPrice(5002L, "USD", new BigDecimal("2000.00"), null);
+		idempotencyKeyRepository.save(new IdempotencyKey("key-5002", 5002L, "USD", new BigDecimal("1000.00"), Instant.now()));
+
+		Price replayed = pricingService.putPrice(5002L, "USD", new BigDecimal("1000.00"), "key-5002");
+
+		assertEquals(0, new BigDecimal("1000.00").compareTo(replayed.getPrice()));
+		assertStored(5002L, "USD", "2000.00");
+		try {
+			pricingService.putPrice(5002L, "USD", new BigDecimal("3000.00"), "key-5002");
+			fail("a key was reused for a different price");
+		} catch (IdempotencyKeyException expected) {
+		}
+		assertStored(5002L, "USD", "2000.00");
+	}
+
+	/**
+	 * Tests that of several concurrent writes with the same key, one is
+	 * applied and all of them get its result.
+	 */
+	@Test
+	public void concurrentPutsWithSameKeyWriteOnce() throws Exception {
+		int writers = 4;
+		long version = pricingService.snapshot().getVersion();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService executor = Executors.newFixedThreadPool(writers);
+		try {
+			List<Future<Price>> results = new ArrayList<>();
+			for (int i = 0; i < writers; i++) {
+				results.add(executor.submit(() -> {
+					start.await();
+					return pricingService.putPrice(5003L, "USD", new BigDecimal("1000.00"), "key-5003");
+				}));
+			}
+			start.countDown();
+			for (Future<Price> result : results) {
+				assertEquals(0, new BigDecimal("1000.00").compareTo(result.get(30, TimeUnit.SECONDS).getPrice()));
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		assertEquals(version + 1, pricingService.snapshot().getVersion());
+		assertStored(5003L, "USD", "1000.00");
+	}
+
+	/**
+	 * Tests that keys older than the retention period are purged and
+	 * newer ones kept.
+	 */
+	@Test
+	public void purgeIdempotencyKeys() {
+		idempotencyKeyRepository.save(new IdempotencyKey("key-5004", 5004L, "USD", BigDecimal.ONE,
+				Instant.now().minus(Duration.ofDays(2))));
+		idempotencyKeyRepository.save(new IdempotencyKey("key-5005", 5005L, "USD", BigDecimal.ONE, Instant.now()));
+
+		pricingService.purgeIdempotencyKeys();
+
+		assertFalse(idempotencyKeyRepository.existsById("key-5004"));
+		assertTrue(idempotencyKeyRepository.existsById("key-5005"));
+	}
+
+	private void assertOutcome(PriceOutcome outcome, Long vehicleId, String status) {
+		assertEquals(vehicleId, outcome.getVehicleId());
+		assertEquals(status, outcome.getStatus());
+		if ("Success".equals(status)) {
+			assertNull(outcome.getMessage());
+		}
+	}
+
+	/**
+	 * Asserts that the price is the same in the database and in the price table.
+	 */
+	private void assertStored(Long vehicleId, String currency, String amount) throws PriceException {
+		Price stored = priceRepository.findById(vehicleId).get();
+		assertEquals(currency, stored.getCurrency());
+		assertEquals(0, new BigDecimal(amount).compareTo(stored.getPrice()));
+		Price served = pricingService.getPrice(vehicleId);
+		assertEquals(currency, served.getCurrency());
+		assertEquals(0, new BigDecimal(amount).compareTo(served.getPrice()));
+	}
+
+	private void assertPriceNotFound(Long vehicleId) {
+		try {
+			pricingService.getPrice(vehicleId);
+			fail("price of vehicle " + vehicleId + " is still served");
+		} catch (PriceException expected) {
+		}
+	}
+}
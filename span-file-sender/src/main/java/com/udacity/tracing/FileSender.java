@@ -0,0 +1,123 @@
+package com.udacity.tracing;
+
+import zipkin2.Call;
+import zipkin2.Callback;
+import zipkin2.codec.Encoding;
+import zipkin2.reporter.Sender;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Stands in for a Zipkin collector: appends the spans Sleuth reports to a
+ * local file as Zipkin JSON v2, one span per line. Sleuth's reporter still
+ * queues and batches the spans on its own thread, so request threads never
+ * wait on the disk, and drops them if the file cannot keep up.
+ */
+public class FileSender extends Sender {
+
+    private static final int MESSAGE_MAX_BYTES = 512 * 1024;
+
+    private final Path file;
+    private final OutputStream out;
+    private volatile boolean closed;
+
+    /**
+     * @param file the file to append to, created along with its directory
+     * @throws IOException if the file cannot be opened
+     */
+    public FileSender(Path file) throws IOException {
+        Path directory = file.toAbsolutePath().getParent();
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        this.file = file;
+        this.out = new BufferedOutputStream(Files.newOutputStream(file,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND), 1 << 16);
+    }
+
+    @Override
+    public Encoding encoding() {
+        return Encoding.JSON;
+    }
+
+    @Override
+    public int messageMaxBytes() {
+        return MESSAGE_MAX_BYTES;
+    }
+
+    @Override
+    public int messageSizeInBytes(List<byte[]> encodedSpans) {
+        return Encoding.JSON.listSizeInBytes(encodedSpans);
+    }
+
+    @Override
+    public Call<Void> sendSpans(List<byte[]> encodedSpans) {
+        if (closed) {
+            throw new IllegalStateException(file + " is closed");
+        }
+        return new WriteCall(encodedSpans);
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (!closed) {
+            closed = true;
+            out.close();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "FileSender{" + file + "}";
+    }
+
+    private synchronized void write(List<byte[]> encodedSpans) throws IOException {
+        if (closed) {
+            throw new IOException(file + " is closed");
+        }
+        for (byte[] span : encodedSpans) {
+            out.write(span);
+            out.write('\n');
+        }
+        out.flush();
+    }
+
+    /**
+     * Writes one batch of spans when executed.
+     */
+    private final class WriteCall extends Call.Base<Void> {
+
+        private final List<byte[]> encodedSpans;
+
+        private WriteCall(List<byte[]> encodedSpans) {
+            this.encodedSpans = encodedSpans;
+        }
+
+        @Override
+        protected Void doExecute() throws IOException {
+            write(encodedSpans);
+            return null;
+        }
+
+        @Override
+        protected void doEnqueue(Callback<Void> callback) {
+            try {
+                write(encodedSpans);
+                callback.onSuccess(null);
+            } catch (IOException | RuntimeException ex) {
+                callback.onError(ex);
+            }
+        }
+
+        @Override
+        public Call<Void> clone() {
+            return new WriteCall(encodedSpans);
+        }
+    }
+}
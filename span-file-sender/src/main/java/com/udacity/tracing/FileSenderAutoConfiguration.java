@@ -0,0 +1,34 @@
+package com.udacity.tracing;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.AutoConfigureAfter;
+import org.springframework.boot.autoconfigure.AutoConfigureBefore;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.cloud.sleuth.zipkin2.ZipkinAutoConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Replaces the sender of Sleuth's Zipkin reporter with a {@link FileSender}
+ * when "tracing.file" names a file. Sleuth's own sampling, batching and
+ * reporter metrics still apply; only where the spans go changes. With
+ * "tracing.file" empty, spans go to the collector at "spring.zipkin.base-url".
+ * <p>
+ * It must come after Sleuth's backwards compatibility configuration, which
+ * would otherwise take the only sender bean for an old-style one and fail
+ * to build a reporter around it.
+ */
+@Configuration
+@ConditionalOnExpression("!'${tracing.file:}'.isEmpty()")
+@AutoConfigureAfter(name = "org.springframework.cloud.sleuth.zipkin2.ZipkinBackwardsCompatibilityAutoConfiguration")
+@AutoConfigureBefore(ZipkinAutoConfiguration.class)
+public class FileSenderAutoConfiguration {
+
+    @Bean(ZipkinAutoConfiguration.SENDER_BEAN_NAME)
+    public FileSender zipkinSender(@Value("${tracing.file}") String file) throws IOException {
+        return new FileSender(Paths.get(file));
+    }
+}
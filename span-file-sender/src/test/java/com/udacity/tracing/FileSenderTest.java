@@ -0,0 +1,98 @@
+package com.udacity.tracing;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import org.springframework.boot.autoconfigure.AutoConfigurations;
+import org.springframework.boot.test.context.runner.ApplicationContextRunner;
+import org.springframework.cloud.sleuth.autoconfig.TraceAutoConfiguration;
+import org.springframework.cloud.sleuth.zipkin2.ZipkinAutoConfiguration;
+import org.springframework.cloud.sleuth.zipkin2.ZipkinBackwardsCompatibilityAutoConfiguration;
+import zipkin2.Span;
+import zipkin2.codec.SpanBytesDecoder;
+import zipkin2.reporter.AsyncReporter;
+import zipkin2.reporter.Sender;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the FileSender class and of its auto-configuration.
+ */
+public class FileSenderTest {
+
+    private final ApplicationContextRunner contextRunner = new ApplicationContextRunner()
+            .withConfiguration(AutoConfigurations.of(FileSenderAutoConfiguration.class,
+                    TraceAutoConfiguration.class, ZipkinAutoConfiguration.class,
+                    ZipkinBackwardsCompatibilityAutoConfiguration.class));
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Tests that spans reported through a Zipkin reporter end up in the
+     * file as JSON, one per line, and read back as the spans reported.
+     */
+    @Test
+    public void reportedSpansAreWrittenOnePerLine() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("traces/test.json");
+        Span first = span("1", "get /cars/{id}");
+        Span second = span("2", "get /services/price");
+
+        try (FileSender sender = new FileSender(file);
+             AsyncReporter<Span> reporter = AsyncReporter.create(sender)) {
+            reporter.report(first);
+            reporter.report(second);
+            reporter.flush();
+        }
+
+        List<Span> written = Files.readAllLines(file).stream()
+                .map(line -> SpanBytesDecoder.JSON_V2.decodeOne(line.getBytes()))
+                .collect(Collectors.toList());
+        assertEquals(2, written.size());
+        assertTrue(written.contains(first));
+        assertTrue(written.contains(second));
+    }
+
+    /**
+     * Tests that with "tracing.file" set, Sleuth's Zipkin reporter sends
+     * spans through a FileSender.
+     */
+    @Test
+    public void fileSenderReplacesCollectorWhenFileIsSet() {
+        Path file = folder.getRoot().toPath().resolve("service.json");
+        contextRunner.withPropertyValues("tracing.file=" + file).run(context -> {
+            assertNull(context.getStartupFailure());
+            assertTrue(context.getBean(ZipkinAutoConfiguration.SENDER_BEAN_NAME, Sender.class) instanceof FileSender);
+            assertTrue(context.getBean(ZipkinAutoConfiguration.REPORTER_BEAN_NAME) instanceof AsyncReporter);
+            assertTrue(Files.exists(file));
+        });
+    }
+
+    /**
+     * Tests that with "tracing.file" empty, spans go to the collector.
+     */
+    @Test
+    public void collectorIsUsedWhenFileIsEmpty() {
+        contextRunner.withPropertyValues("tracing.file=").run(context -> {
+            assertFalse(context.getBean(ZipkinAutoConfiguration.SENDER_BEAN_NAME, Sender.class) instanceof FileSender);
+        });
+    }
+
+    private static Span span(String id, String name) {
+        return Span.newBuilder()
+                .traceId("463ac35c9f6413ad")
+                .id(id)
+                .name(name)
+                .timestamp(1_560_000_000_000_000L)
+                .duration(1000L)
+                .build();
+    }
+}
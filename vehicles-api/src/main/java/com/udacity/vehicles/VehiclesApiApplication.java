@@ -1,7 +1,9 @@
 package com.udacity.vehicles;
 
+import com.udacity.vehicles.config.PooledConnector;
 import com.udacity.vehicles.domain.manufacturer.Manufacturer;
 import com.udacity.vehicles.domain.manufacturer.ManufacturerRepository;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
@@ -12,7 +14,12 @@ import org.springframework.cloud.client.loadbalancer.reactive.LoadBalancerExchan
 import org.springframework.cloud.netflix.eureka.EnableEurekaClient;
 import org.springframework.context.annotation.Bean;
 import org.springframework.data.jpa.repository.config.EnableJpaAuditing;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
 
 /**
  * Launches a Spring Boot application for the Vehicles API,
@@ -50,23 +57,55 @@ public class VehiclesApiApplication {
     }
 
     /**
-     * Web Client for the maps (location) API
+     * Scheduler for blocking repository calls made from reactive code,
+     * sized to the connection pool so callers queue here rather than
+     * holding a thread while waiting for a connection.
+     * @param poolSize the maximum number of database connections
+     * @return scheduler backed by a fixed pool of JDBC threads
+     */
+    @Bean(destroyMethod = "dispose")
+    public Scheduler jdbcScheduler(@Value("${spring.datasource.hikari.maximum-pool-size:10}") int poolSize) {
+        return Schedulers.fromExecutorService(
+                Executors.newFixedThreadPool(poolSize, new CustomizableThreadFactory("jdbc-")));
+    }
+
+    /**
+     * Web Client for the maps (location) API. Built from the auto-configured
+     * builder, which carries the trace context of the calling request.
      * @param endpoint where to communicate for the maps API
      * @return created maps endpoint
      */
     @Bean(name="maps")
-    public WebClient webClientMaps(@Value("${maps.endpoint}") String endpoint) {
-        return WebClient.create(endpoint);
+    public WebClient webClientMaps(@Value("${maps.endpoint}") String endpoint, WebClient.Builder builder,
+                                   @Value("${maps.http.max-connections:100}") int maxConnections,
+                                   @Value("${maps.http.acquire-timeout-ms:1000}") long acquireTimeoutMillis,
+                                   @Value("${maps.http.connect-timeout-ms:1000}") int connectTimeoutMillis,
+                                   @Value("${maps.http.read-timeout-ms:5000}") long readTimeoutMillis,
+                                   MeterRegistry meterRegistry) {
+        PooledConnector pool = new PooledConnector("maps", new PooledConnector.Settings(
+                maxConnections, acquireTimeoutMillis, connectTimeoutMillis, readTimeoutMillis), meterRegistry);
+        return builder.clientConnector(pool.connector()).filter(pool.requestTracker())
+                .baseUrl(endpoint).build();
     }
 
     /**
-     * Web Client for the pricing API
+     * Web Client for the pricing API. Built from the auto-configured
+     * builder, which carries the trace context of the calling request.
      * @param endpoint where to communicate for the pricing API
      * @return created pricing endpoint
      */
     @Bean(name="pricing")
-    public WebClient webClientPricing(@Value("${pricing.endpoint}") String endpoint, LoadBalancerClient lClient) {
-        return WebClient.builder().filter(new LoadBalancerExchangeFilterFunction(lClient)).baseUrl(endpoint).build();
+    public WebClient webClientPricing(@Value("${pricing.endpoint}") String endpoint, WebClient.Builder builder,
+                                      LoadBalancerClient lClient,
+                                      @Value("${pricing.http.max-connections:100}") int maxConnections,
+                                      @Value("${pricing.http.acquire-timeout-ms:1000}") long acquireTimeoutMillis,
+                                      @Value("${pricing.http.connect-timeout-ms:1000}") int connectTimeoutMillis,
+                                      @Value("${pricing.http.read-timeout-ms:5000}") long readTimeoutMillis,
+                                      MeterRegistry meterRegistry) {
+        PooledConnector pool = new PooledConnector("pricing", new PooledConnector.Settings(
+                maxConnections, acquireTimeoutMillis, connectTimeoutMillis, readTimeoutMillis), meterRegistry);
+        return builder.clientConnector(pool.connector()).filter(pool.requestTracker())
+                .filter(new LoadBalancerExchangeFilterFunction(lClient)).baseUrl(endpoint).build();
     }
 
 }
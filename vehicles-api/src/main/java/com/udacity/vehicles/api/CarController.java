@@ -1,21 +1,29 @@
 package com.udacity.vehicles.api;
 
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.udacity.vehicles.domain.car.Car;
 import com.udacity.vehicles.service.CarService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.Resources;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import javax.validation.Valid;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.time.ZoneId;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.concurrent.TimeUnit;
 
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.linkTo;
-import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
+import static com.udacity.vehicles.constants.ApplicationConstants.DEFAULT_PAGE_SIZE;
+import static com.udacity.vehicles.constants.ApplicationConstants.NDJSON_VALUE;
 
 /**
  * Implements a REST-based controller for the Vehicles API.
@@ -24,35 +32,117 @@ import static org.springframework.hateoas.mvc.ControllerLinkBuilder.methodOn;
 @RequestMapping("/cars")
 class CarController  {
 
+    private static final int EXPORT_FLUSH_ROWS = 500;
+
     private final CarService carService;
     private final CarResourceAssembler assembler;
+    private final ObjectMapper objectMapper;
+    private final long freshnessMillis;
 
-    CarController(CarService carService, CarResourceAssembler assembler) {
+    CarController(CarService carService, CarResourceAssembler assembler, ObjectMapper objectMapper,
+                  @Value("${cars.etag.freshness-seconds:${pricing.cache.ttl-seconds:300}}") long freshnessSeconds) {
+        if (freshnessSeconds < 0) {
+            throw new IllegalArgumentException("cars.etag.freshness-seconds must not be negative");
+        }
         this.carService = carService;
         this.assembler = assembler;
+        this.objectMapper = objectMapper;
+        this.freshnessMillis = TimeUnit.SECONDS.toMillis(freshnessSeconds);
     }
 
     /**
-     * Creates a list to store any vehicles.
-     * @return list of vehicles
+     * Lists vehicles one page at a time.
+     * By default pages are addressed by number ("page", "size", "sort").
+     * When an "after" or "before" ID cursor is given, the page is read by
+     * keyset instead, in ascending ID order, which stays cheap however
+     * deep the client pages.
+     * @param after the ID of the last vehicle already seen (0 to start)
+     * @param before the ID of the first vehicle already seen
+     * @param pageable the page number, size and sort order
+     * @return a page of vehicles, with links to the neighbouring pages
      */
     @GetMapping
-    Resources<Resource<Car>> list() {
-        List<Resource<Car>> resources = carService.list().stream().map(assembler::toResource)
-                .collect(Collectors.toList());
-        return new Resources<>(resources,
-                linkTo(methodOn(CarController.class).list()).withSelfRel());
+    Resources<Resource<Car>> list(@RequestParam(name = "after", required = false) Long after,
+                                  @RequestParam(name = "before", required = false) Long before,
+                                  @PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id") Pageable pageable) {
+        int size = pageable.getPageSize();
+        if (after != null) {
+            List<Car> cars = carService.listAfter(after, size);
+            return assembler.toKeysetResources(cars, size, after > 0, cars.size() == size);
+        }
+        if (before != null) {
+            List<Car> cars = carService.listBefore(before, size);
+            return assembler.toKeysetResources(cars, size, cars.size() == size, true);
+        }
+        return assembler.toPagedResources(carService.list(pageable));
+    }
+
+    /**
+     * Streams the whole vehicle inventory as newline-delimited JSON.
+     * Rows are written as they are read from the database, so memory use
+     * stays flat however many vehicles there are. Vehicles are exported
+     * as stored, without price or address.
+     * @return a stream of vehicles, one JSON document per line
+     */
+    @GetMapping(value = "/export", produces = NDJSON_VALUE)
+    ResponseEntity<StreamingResponseBody> export() {
+        StreamingResponseBody body = out -> {
+            NdjsonCarWriter writer = new NdjsonCarWriter(objectMapper, out, EXPORT_FLUSH_ROWS);
+            carService.export(writer);
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.parseMediaType(NDJSON_VALUE)).body(body);
     }
 
     /**
      * Gets information of a specific car by ID.
+     * The response carries an ETag derived from the car's version and its
+     * current price, as the price client knows it (usually from its cache),
+     * so a price change made without touching the car still changes the
+     * ETag. A conditional request that still matches is answered with 304
+     * without calling the maps service or building the response.
+     * Last-Modified is the later of when the car was last changed and the
+     * start of the current enrichment period
+     * ("cars.etag.freshness-seconds", by default the price cache TTL), as it
+     * cannot reflect price changes; a period of 0 leaves it out, so only
+     * If-None-Match is honoured.
      * @param id the id number of the given vehicle
+     * @param request the request, checked for If-None-Match and If-Modified-Since
      * @return all information for the requested vehicle
      */
     @GetMapping("/{id}")
-    Resource<Car> get(@PathVariable Long id) {
-        Car car = carService.findById(id);
-        return assembler.toResource(car);
+    ResponseEntity<Resource<Car>> get(@PathVariable Long id, WebRequest request) {
+        Car car = carService.load(id);
+        String etag = etag(car, carService.price(car.getId()).block());
+        Long lastModified = lastModified(car);
+        if (lastModified != null ? request.checkNotModified(etag, lastModified) : request.checkNotModified(etag)) {
+            return null;
+        }
+        Car enriched = carService.enrich(car).block();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().eTag(etag(enriched, enriched.getPrice()));
+        if (lastModified != null) {
+            response.lastModified(lastModified);
+        }
+        return response.body(assembler.toResource(enriched));
+    }
+
+    private static String etag(Car car, String price) {
+        return "\"" + car.getId() + "-" + car.getVersion() + "-" + Integer.toHexString(String.valueOf(price).hashCode()) + "\"";
+    }
+
+    /**
+     * @return the Last-Modified time in epoch milliseconds, or null if
+     *   there is no enrichment period
+     */
+    private Long lastModified(Car car) {
+        if (freshnessMillis == 0) {
+            return null;
+        }
+        long periodStart = System.currentTimeMillis() / freshnessMillis * freshnessMillis;
+        long modifiedAt = car.getModifiedAt() != null
+                ? car.getModifiedAt().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli()
+                : 0L;
+        return Math.max(modifiedAt, periodStart);
     }
 
     /**
@@ -70,6 +160,9 @@ class CarController  {
 
     /**
      * Updates the information of a vehicle in the system.
+     * If the body carries the "version" the client last read, the update
+     * fails with 409 Conflict when the vehicle has changed since; without
+     * it, concurrent updates are applied one after the other.
      * @param id The ID number for which to update vehicle information.
      * @param car The updated information about the related vehicle.
      * @return response that the vehicle was updated in the system
@@ -1,9 +1,20 @@
 package com.udacity.vehicles.api;
 
 import com.udacity.vehicles.domain.car.Car;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Sort;
+import org.springframework.hateoas.Link;
+import org.springframework.hateoas.PagedResources;
 import org.springframework.hateoas.Resource;
 import org.springframework.hateoas.ResourceAssembler;
+import org.springframework.hateoas.Resources;
 import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.springframework.hateoas.mvc.ControllerLinkBuilder.*;
 
@@ -16,8 +27,71 @@ public class CarResourceAssembler implements ResourceAssembler<Car, Resource<Car
     @Override
     public Resource<Car> toResource(Car car) {
         return new Resource<>(car,
-                linkTo(methodOn(CarController.class).get(car.getId())).withSelfRel(),
-                linkTo(methodOn(CarController.class).list()).withRel("cars"));
+                linkTo(methodOn(CarController.class).get(car.getId(), null)).withSelfRel(),
+                linkTo(CarController.class).withRel("cars"));
+
+    }
+
+    /**
+     * Wraps a page of cars, adding self, prev and next links that keep
+     * the requested page size and sort order.
+     * @param page the page of cars to wrap
+     * @return the page as HATEOAS resources, including page metadata
+     */
+    public PagedResources<Resource<Car>> toPagedResources(Page<Car> page) {
+        List<Resource<Car>> content = page.getContent().stream().map(this::toResource)
+                .collect(Collectors.toList());
+        PagedResources.PageMetadata metadata = new PagedResources.PageMetadata(
+                page.getSize(), page.getNumber(), page.getTotalElements(), page.getTotalPages());
+
+        List<Link> links = new ArrayList<>();
+        links.add(pageLink(page.getNumber(), page.getSize(), page.getSort(), Link.REL_SELF));
+        if (page.hasPrevious()) {
+            links.add(pageLink(page.getNumber() - 1, page.getSize(), page.getSort(), Link.REL_PREVIOUS));
+        }
+        if (page.hasNext()) {
+            links.add(pageLink(page.getNumber() + 1, page.getSize(), page.getSort(), Link.REL_NEXT));
+        }
+        return new PagedResources<>(content, metadata, links);
+    }
+
+    /**
+     * Wraps a keyset (ID cursor) page of cars, adding prev and next links
+     * that point before the first and after the last car of the page.
+     * @param cars the cars of the page, in ascending ID order
+     * @param size the requested page size
+     * @param hasPrevious whether cars may exist before this page
+     * @param hasNext whether cars may exist after this page
+     * @return the cars as HATEOAS resources
+     */
+    public Resources<Resource<Car>> toKeysetResources(List<Car> cars, int size,
+                                                      boolean hasPrevious, boolean hasNext) {
+        List<Resource<Car>> content = cars.stream().map(this::toResource)
+                .collect(Collectors.toList());
+
+        List<Link> links = new ArrayList<>();
+        links.add(new Link(ServletUriComponentsBuilder.fromCurrentRequest().build().toUriString()));
+        if (!cars.isEmpty() && hasPrevious) {
+            links.add(cursorLink("before", cars.get(0).getId(), size, Link.REL_PREVIOUS));
+        }
+        if (!cars.isEmpty() && hasNext) {
+            links.add(cursorLink("after", cars.get(cars.size() - 1).getId(), size, Link.REL_NEXT));
+        }
+        return new Resources<>(content, links);
+    }
+
+    private Link pageLink(int page, int size, Sort sort, String rel) {
+        UriComponentsBuilder builder = linkTo(CarController.class).toUriComponentsBuilder()
+                .queryParam("page", page)
+                .queryParam("size", size);
+        sort.forEach(order -> builder.queryParam("sort", order.getProperty() + "," + order.getDirection()));
+        return new Link(builder.build().toUriString(), rel);
+    }
 
+    private Link cursorLink(String cursor, Long id, int size, String rel) {
+        UriComponentsBuilder builder = linkTo(CarController.class).toUriComponentsBuilder()
+                .queryParam(cursor, id)
+                .queryParam("size", size);
+        return new Link(builder.build().toUriString(), rel);
     }
 }
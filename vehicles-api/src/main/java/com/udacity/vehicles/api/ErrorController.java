@@ -1,21 +1,27 @@
 package com.udacity.vehicles.api;
 
+import com.udacity.vehicles.service.CarConflictException;
 import com.udacity.vehicles.service.CarNotFoundException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.mapping.PropertyReferenceException;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ControllerAdvice;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.context.request.WebRequest;
 import org.springframework.web.servlet.mvc.method.annotation.ResponseEntityExceptionHandler;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 
+import static com.udacity.vehicles.constants.ApplicationConstants.CAR_CONFLICT;
 import static com.udacity.vehicles.constants.ApplicationConstants.CAR_NOT_FOUND;
+import static com.udacity.vehicles.constants.ApplicationConstants.INVALID_SORT;
 
 /**
  * Implements the Error controller related to any errors handled by the Vehicles API
@@ -36,6 +42,14 @@ private static final Logger log = LoggerFactory.getLogger(ErrorController.class)
             bodyOfResponse = CAR_NOT_FOUND;
             return handleExceptionInternal(ex, bodyOfResponse,
                     new HttpHeaders(), HttpStatus.NOT_FOUND, request);
+        } else if (ex instanceof CarConflictException || ex instanceof ObjectOptimisticLockingFailureException) {
+            bodyOfResponse = CAR_CONFLICT;
+            return handleExceptionInternal(ex, bodyOfResponse,
+                    new HttpHeaders(), HttpStatus.CONFLICT, request);
+        } else if (ex instanceof PropertyReferenceException) {
+            ApiError apiError = new ApiError(INVALID_SORT, Collections.singletonList(ex.getMessage()));
+            return handleExceptionInternal(ex, apiError,
+                    new HttpHeaders(), HttpStatus.BAD_REQUEST, request);
         } else {
             bodyOfResponse = "Operation not supported.";
             return handleExceptionInternal(ex, bodyOfResponse,
@@ -0,0 +1,49 @@
+package com.udacity.vehicles.api;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.udacity.vehicles.domain.car.Car;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.function.Consumer;
+
+/**
+ * Writes cars to an output stream as newline-delimited JSON, one car per line.
+ * The first car is flushed straight away so the client sees data immediately;
+ * after that the output is flushed every {@code flushEvery} cars.
+ */
+class NdjsonCarWriter implements Consumer<Car> {
+
+    private final ObjectWriter writer;
+    private final JsonGenerator generator;
+    private final int flushEvery;
+    private long rows;
+
+    NdjsonCarWriter(ObjectMapper mapper, OutputStream out, int flushEvery) throws IOException {
+        this.writer = mapper.writerFor(Car.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        this.generator = mapper.getFactory().createGenerator(out);
+        this.generator.setRootValueSeparator(null);
+        this.flushEvery = flushEvery;
+    }
+
+    @Override
+    public void accept(Car car) {
+        try {
+            writer.writeValue(generator, car);
+            generator.writeRaw('\n');
+            if (++rows == 1 || rows % flushEvery == 0) {
+                generator.flush();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    void flush() throws IOException {
+        generator.flush();
+    }
+}
@@ -0,0 +1,119 @@
+package com.udacity.vehicles.api;
+
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.service.ReactiveCarService;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.web.PageableDefault;
+import org.springframework.hateoas.PagedResources;
+import org.springframework.hateoas.Resource;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import reactor.core.publisher.Mono;
+
+import javax.validation.Valid;
+import java.net.URI;
+import java.util.function.Supplier;
+
+import static com.udacity.vehicles.constants.ApplicationConstants.DEFAULT_PAGE_SIZE;
+
+/**
+ * Implements a non-blocking REST-based controller for the Vehicles API.
+ * Handlers return as soon as the work is scheduled; the response is
+ * written when the Mono completes, so no servlet thread waits on the
+ * database or on the pricing and maps services.
+ */
+@RestController
+@RequestMapping("/reactive/cars")
+class ReactiveCarController {
+
+    private final ReactiveCarService carService;
+    private final CarResourceAssembler assembler;
+
+    ReactiveCarController(ReactiveCarService carService, CarResourceAssembler assembler) {
+        this.carService = carService;
+        this.assembler = assembler;
+    }
+
+    /**
+     * Lists vehicles one page at a time.
+     * @param pageable the page number, size and sort order
+     * @return a page of vehicles, with links to the neighbouring pages
+     */
+    @GetMapping
+    Mono<PagedResources<Resource<Car>>> list(@PageableDefault(size = DEFAULT_PAGE_SIZE, sort = "id") Pageable pageable) {
+        RequestAttributes request = RequestContextHolder.currentRequestAttributes();
+        return carService.list(pageable)
+                .map(page -> withRequest(request, () -> assembler.toPagedResources(page)));
+    }
+
+    /**
+     * Gets information of a specific car by ID.
+     * @param id the id number of the given vehicle
+     * @return all information for the requested vehicle
+     */
+    @GetMapping("/{id}")
+    Mono<Resource<Car>> get(@PathVariable Long id) {
+        RequestAttributes request = RequestContextHolder.currentRequestAttributes();
+        return carService.findById(id)
+                .map(car -> withRequest(request, () -> assembler.toResource(car)));
+    }
+
+    /**
+     * Posts information to create a new vehicle in the system.
+     * @param car A new vehicle to add to the system.
+     * @return response that the new vehicle was added to the system
+     */
+    @PostMapping
+    Mono<ResponseEntity<Resource<Car>>> post(@Valid @RequestBody Car car) {
+        RequestAttributes request = RequestContextHolder.currentRequestAttributes();
+        return carService.save(car)
+                .map(savedCar -> withRequest(request, () -> assembler.toResource(savedCar)))
+                .map(resource -> ResponseEntity.created(URI.create(resource.getId().expand().getHref())).body(resource));
+    }
+
+    /**
+     * Updates the information of a vehicle in the system.
+     * @param id The ID number for which to update vehicle information.
+     * @param car The updated information about the related vehicle.
+     * @return response that the vehicle was updated in the system
+     */
+    @PutMapping("/{id}")
+    Mono<ResponseEntity<Resource<Car>>> put(@PathVariable Long id, @Valid @RequestBody Car car) {
+        car.setId(id);
+        RequestAttributes request = RequestContextHolder.currentRequestAttributes();
+        return carService.save(car)
+                .map(savedCar -> withRequest(request, () -> assembler.toResource(savedCar)))
+                .map(ResponseEntity::ok);
+    }
+
+    /**
+     * Removes a vehicle from the system.
+     * @param id The ID number of the vehicle to remove.
+     * @return response that the related vehicle is no longer in the system
+     */
+    @DeleteMapping("/{id}")
+    Mono<ResponseEntity<Resource<String>>> delete(@PathVariable Long id) {
+        return carService.delete(id)
+                .map(status -> ResponseEntity.ok(new Resource<>(status)));
+    }
+
+    /**
+     * Links are built from the current request, which is only bound to the
+     * servlet thread. Rebinds it while assembling on a reactor thread.
+     */
+    private static <T> T withRequest(RequestAttributes request, Supplier<T> assembly) {
+        RequestAttributes previous = RequestContextHolder.getRequestAttributes();
+        RequestContextHolder.setRequestAttributes(request);
+        try {
+            return assembly.get();
+        } finally {
+            if (previous != null) {
+                RequestContextHolder.setRequestAttributes(previous);
+            } else {
+                RequestContextHolder.resetRequestAttributes();
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.udacity.vehicles.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Times the remote calls of a client, tagged with the client method and the
+ * outcome: "success", "timeout" when the call outlasted the client timeout,
+ * or "fallback" when it failed or was rejected and the caller fell back.
+ * Answers served from a client cache make no remote call and are not timed;
+ * the caches publish their own hit and miss counts.
+ */
+public final class ClientMetrics {
+
+    private static final String SUCCESS = "success";
+    private static final String TIMEOUT = "timeout";
+    private static final String FALLBACK = "fallback";
+
+    private final MeterRegistry registry;
+    private final String name;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+
+    /**
+     * @param registry where to register the timers
+     * @param name name of the timers, e.g. "pricing.client.requests"
+     */
+    public ClientMetrics(MeterRegistry registry, String name) {
+        this.registry = registry;
+        this.name = name;
+    }
+
+    /**
+     * @param method the client method the call is made for
+     * @param call the remote call, with its timeout and other guards applied
+     * @return the call, timed from subscription to its value or error
+     */
+    public <T> Mono<T> time(String method, Mono<T> call) {
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(registry);
+            return call
+                    .doOnSuccess(value -> sample.stop(timer(method, SUCCESS)))
+                    .doOnError(e -> sample.stop(timer(method, e instanceof TimeoutException ? TIMEOUT : FALLBACK)));
+        });
+    }
+
+    private Timer timer(String method, String outcome) {
+        return timers.computeIfAbsent(method + ' ' + outcome, key -> Timer.builder(name)
+                .tag("method", method)
+                .tag("outcome", outcome)
+                .publishPercentileHistogram()
+                .register(registry));
+    }
+}
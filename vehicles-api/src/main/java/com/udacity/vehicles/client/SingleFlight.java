@@ -0,0 +1,50 @@
+package com.udacity.vehicles.client;
+
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent lookups of the same key into one call. The first
+ * subscriber for a key starts the call; everyone who subscribes for that
+ * key before the call completes shares its result, or its error, instead
+ * of making a call of their own. The key is freed as the call completes,
+ * before its result is passed on, so the next lookup makes a new call.
+ * <p>
+ * A subscriber that cancels does not cancel the shared call, which runs
+ * until it completes for the others; calls must therefore be bounded,
+ * e.g. by a timeout.
+ *
+ * @param <K> the lookup key
+ * @param <V> the result of a lookup
+ */
+public final class SingleFlight<K, V> {
+
+    private final ConcurrentMap<K, Mono<V>> inFlight = new ConcurrentHashMap<>();
+
+    /**
+     * @param key identifies the lookup
+     * @param call makes the lookup; only invoked when no call for the key
+     *   is in flight
+     * @return the result of the call in flight for the key, or of a new one
+     */
+    public Mono<V> execute(K key, Supplier<Mono<V>> call) {
+        return Mono.defer(() -> inFlight.computeIfAbsent(key, k -> {
+            AtomicReference<Mono<V>> flight = new AtomicReference<>();
+            flight.set(call.get()
+                    .doOnSuccessOrError((value, error) -> inFlight.remove(k, flight.get()))
+                    .cache());
+            return flight.get();
+        }));
+    }
+
+    /**
+     * @return the number of keys with a call in flight
+     */
+    public int size() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,16 @@
+package com.udacity.vehicles.client.maps;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Declares a class to send a latitude and longitude pair to the Maps client.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class Coordinates {
+    private Double lat;
+    private Double lon;
+}
@@ -1,16 +1,41 @@
 package com.udacity.vehicles.client.maps;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.udacity.vehicles.client.ClientMetrics;
+import com.udacity.vehicles.client.SingleFlight;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
 import com.udacity.vehicles.domain.Location;
-import org.modelmapper.ModelMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
-import java.util.Objects;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
 
 /**
  * Implements a class to interface with the Maps Client for location data.
+ * Addresses are cached by coordinates rounded to "maps.cache.precision"
+ * decimal places, so cars that have not moved do not cost a remote call.
+ * Remote calls are bounded by a timeout, a concurrency bulkhead and a
+ * circuit breaker, so an unhealthy maps service is answered with the bare
+ * location straight away rather than after the timeout. Remote calls are
+ * timed as "maps.client.requests" by method and outcome.
  */
 @Component
 public class MapsClient {
@@ -18,12 +43,40 @@ public class MapsClient {
     private static final Logger log = LoggerFactory.getLogger(MapsClient.class);
 
     private final WebClient client;
-    private final ModelMapper mapper;
+    private final Duration timeout;
+    private final int batchSize;
+    private final double scale;
+    private final Cache<Long, Address> addresses;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final ClientMetrics metrics;
+    private final SingleFlight<Long, Address> lookups = new SingleFlight<>();
 
     public MapsClient(WebClient maps,
-            ModelMapper mapper) {
+            MeterRegistry meterRegistry,
+            CircuitBreaker mapsCircuitBreaker,
+            Bulkhead mapsBulkhead,
+            @Value("${maps.timeout-ms:2000}") long timeoutMillis,
+            @Value("${maps.batch-size:500}") int batchSize,
+            @Value("${maps.cache.precision:4}") int precision,
+            @Value("${maps.cache.max-size:10000}") long maxSize,
+            @Value("${maps.cache.ttl-minutes:60}") long ttlMinutes) {
+        if (precision < 0 || precision > 7) {
+            throw new IllegalArgumentException("maps.cache.precision must be between 0 and 7");
+        }
         this.client = maps;
-        this.mapper = mapper;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.batchSize = batchSize;
+        this.scale = Math.pow(10, precision);
+        this.circuitBreaker = mapsCircuitBreaker;
+        this.bulkhead = mapsBulkhead;
+        this.metrics = new ClientMetrics(meterRegistry, "maps.client.requests");
+        this.addresses = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofMinutes(ttlMinutes))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, addresses, "maps.address");
     }
 
     /**
@@ -33,24 +86,158 @@ public class MapsClient {
      *   or an exception message noting the Maps service is down
      */
     public Location getAddress(Location location) {
-        try {
-            Address address = client
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/maps/")
-                            .queryParam("lat", location.getLat())
-                            .queryParam("lon", location.getLon())
-                            .build()
-                    )
-                    .retrieve().bodyToMono(Address.class).block();
-
-            mapper.map(Objects.requireNonNull(address), location);
-
-            return location;
-        } catch (Exception e) {
+        return getAddressAsync(location).block();
+    }
+
+    /**
+     * Gets an address from the Maps client without blocking the caller.
+     * Cached addresses are returned without a remote call. Otherwise the
+     * lookup is bounded by the configured maps timeout and never errors:
+     * failures resolve to the location as given, and are not cached.
+     * Concurrent lookups that round to the same cache key share one call.
+     * @param location An object containing "lat" and "lon" of location
+     * @return An updated location including street, city, state and zip,
+     *   or the unchanged location if the Maps service is down
+     */
+    public Mono<Location> getAddressAsync(Location location) {
+        Long key = key(location);
+        Address cached = addresses.getIfPresent(key);
+        if (cached != null) {
+            return Mono.just(apply(cached, location));
+        }
+        return lookups.execute(key, () -> client
+                        .get()
+                        .uri(uriBuilder -> uriBuilder
+                                .path("/maps/")
+                                .queryParam("lat", location.getLat())
+                                .queryParam("lon", location.getLon())
+                                .build()
+                        )
+                        .retrieve().bodyToMono(Address.class)
+                        .doOnNext(address -> addresses.put(key, address))
+                        .transform(call -> guard("getAddress", call))
+                        .onErrorResume(e -> {
+                            logFailure(e);
+                            return Mono.empty();
+                        }))
+                .map(address -> apply(address, location))
+                .defaultIfEmpty(location);
+    }
+
+    /**
+     * Gets the addresses of many locations from the Maps client.
+     * @param locations Objects containing "lat" and "lon" of each location
+     * @return The same locations, updated with street, city, state and zip
+     *   where the Maps service could resolve them
+     */
+    public List<Location> getAddresses(List<Location> locations) {
+        return getAddressesAsync(locations).block();
+    }
+
+    /**
+     * Gets the addresses of many locations without blocking the caller.
+     * Cached addresses are used as is. The remaining locations, deduplicated
+     * by cache key, go to the batch endpoint in chunks of at most
+     * "maps.batch-size", requested concurrently. Never errors: locations that
+     * could not be resolved are returned unchanged.
+     * @param locations Objects containing "lat" and "lon" of each location
+     * @return The same locations, updated with street, city, state and zip
+     */
+    public Mono<List<Location>> getAddressesAsync(List<Location> locations) {
+        Map<Long, List<Location>> missing = new LinkedHashMap<>();
+        for (Location location : locations) {
+            Long key = key(location);
+            Address cached = addresses.getIfPresent(key);
+            if (cached != null) {
+                apply(cached, location);
+            } else {
+                missing.computeIfAbsent(key, k -> new ArrayList<>()).add(location);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(locations);
+        }
+        List<Long> keys = new ArrayList<>(missing.keySet());
+        List<List<Long>> chunks = new ArrayList<>();
+        for (int from = 0; from < keys.size(); from += batchSize) {
+            chunks.add(keys.subList(from, Math.min(from + batchSize, keys.size())));
+        }
+        return Flux.fromIterable(chunks)
+                .flatMap(chunk -> fetchAddresses(chunk, missing))
+                .then(Mono.just(locations));
+    }
+
+    /**
+     * Looks up one chunk of locations with the batch endpoint. Addresses
+     * are matched to locations by position, so a reply with a different
+     * number of addresses cannot be matched: it fails the whole chunk,
+     * which falls back like any other failed call.
+     */
+    private Mono<Void> fetchAddresses(List<Long> keys, Map<Long, List<Location>> locations) {
+        List<Coordinates> coordinates = keys.stream()
+                .map(key -> locations.get(key).get(0))
+                .map(location -> new Coordinates(location.getLat(), location.getLon()))
+                .collect(Collectors.toList());
+        return client
+                .post()
+                .uri("/maps/batch")
+                .syncBody(coordinates)
+                .retrieve().bodyToFlux(Address.class)
+                .collectList()
+                .flatMap(found -> found.size() == keys.size() ? Mono.just(found) : Mono.error(
+                        new IllegalStateException("Expected " + keys.size() + " addresses, got " + found.size())))
+                .transform(call -> guard("getAddresses", call))
+                .doOnNext(found -> {
+                    for (int i = 0; i < keys.size(); i++) {
+                        Long key = keys.get(i);
+                        Address address = found.get(i);
+                        addresses.put(key, address);
+                        locations.get(key).forEach(location -> apply(address, location));
+                    }
+                })
+                .onErrorResume(e -> {
+                    logFailure(e);
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    /**
+     * Bounds a remote call with the maps timeout, then the bulkhead, then
+     * the circuit breaker, which is checked first when the call is made.
+     * The timing covers all three, so rejected calls count as fallbacks.
+     */
+    private <T> Mono<T> guard(String method, Mono<T> call) {
+        return metrics.time(method, call
+                .timeout(timeout)
+                .transform(BulkheadOperator.of(bulkhead))
+                .transform(CircuitBreakerOperator.of(circuitBreaker)));
+    }
+
+    private static void logFailure(Throwable e) {
+        if (e instanceof CallNotPermittedException || e instanceof BulkheadFullException) {
+            log.debug("Map service call rejected: {}", e.getMessage());
+        } else {
             log.warn("Map service is down");
-            return location;
         }
     }
 
+    /**
+     * Packs the rounded latitude and longitude into a single key. With at
+     * most 7 decimal places both scaled coordinates fit in an int.
+     */
+    private Long key(Location location) {
+        long lat = Math.round(location.getLat() * scale);
+        long lon = Math.round(location.getLon() * scale);
+        return (lat << 32) | (lon & 0xFFFFFFFFL);
+    }
+
+    private static Location apply(Address address, Location location) {
+        location.setAddress(address.getAddress());
+        location.setCity(address.getCity());
+        location.setState(address.getState());
+        location.setZip(address.getZip());
+        return location;
+    }
+
 }
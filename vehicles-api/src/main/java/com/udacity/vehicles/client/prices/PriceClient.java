@@ -1,33 +1,84 @@
 package com.udacity.vehicles.client.prices;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.udacity.vehicles.client.ClientMetrics;
+import com.udacity.vehicles.client.SingleFlight;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import static com.udacity.vehicles.constants.ApplicationConstants.FAILURE;
+import static com.udacity.vehicles.constants.ApplicationConstants.PRICE_UNAVAILABLE;
 
 /**
  * Implements a class to interface with the Pricing Client for price data.
+ * Prices are cached by vehicle ID for "pricing.cache.ttl-seconds"; writes
+ * made through this client refresh or evict the cached entry.
+ * Every remote call is bounded by a timeout, a concurrency bulkhead and a
+ * circuit breaker, so an unhealthy pricing service is answered with the
+ * fallback straight away rather than after the timeout. Remote calls are
+ * timed as "pricing.client.requests" by method and outcome.
  */
 @Component
 public class PriceClient {
 
     private static final Logger log = LoggerFactory.getLogger(PriceClient.class);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
 
     private final WebClient client;
+    private final Duration timeout;
+    private final int batchSize;
+    private final Cache<Long, Price> prices;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+    private final ClientMetrics metrics;
+    private final SingleFlight<Long, String> lookups = new SingleFlight<>();
 
-    public PriceClient(WebClient pricing) {
+    public PriceClient(WebClient pricing,
+            MeterRegistry meterRegistry,
+            CircuitBreaker pricingCircuitBreaker,
+            Bulkhead pricingBulkhead,
+            @Value("${pricing.timeout-ms:2000}") long timeoutMillis,
+            @Value("${pricing.batch-size:200}") int batchSize,
+            @Value("${pricing.cache.max-size:10000}") long maxSize,
+            @Value("${pricing.cache.ttl-seconds:300}") long ttlSeconds) {
         this.client = pricing;
+        this.timeout = Duration.ofMillis(timeoutMillis);
+        this.batchSize = batchSize;
+        this.circuitBreaker = pricingCircuitBreaker;
+        this.bulkhead = pricingBulkhead;
+        this.metrics = new ClientMetrics(meterRegistry, "pricing.client.requests");
+        this.prices = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, prices, "pricing.price");
     }
 
-    // In a real-world application we'll want to add some resilience
-    // to this method with retries/CB/failover capabilities
-    // We may also want to cache the results so we don't need to
-    // do a request every time
-
     /**
      * Gets a vehicle price from the pricing client, given vehicle ID.
      *
@@ -37,75 +88,243 @@ public class PriceClient {
      * service is down.
      */
     public String getPrice(Long vehicleId) {
-        try {
-            Price price = client
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/services/price")
-                            .queryParam("vehicleId", vehicleId)
-                            .build()
-                    )
-                    .retrieve().bodyToMono(Price.class).block();
-
-            return String.format("%s %s", (price != null) ? price.getCurrency() : "USD", (price != null) ? price.getPrice() : 0);
+        return getPriceAsync(vehicleId).block();
+    }
 
-        } catch (Exception e) {
-            log.error("Unexpected error retrieving price for vehicle {}", vehicleId, e);
+    /**
+     * Gets a vehicle price from the pricing client without blocking the caller.
+     * Cached prices are returned without a remote call. Otherwise the lookup
+     * is bounded by the configured pricing timeout and never errors:
+     * failures resolve to the "(consult price)" fallback. Concurrent lookups
+     * of the same vehicle share one call and its result.
+     *
+     * @param vehicleId ID number of the vehicle for which to get the price
+     * @return Currency and price of the requested vehicle, or the fallback value
+     */
+    public Mono<String> getPriceAsync(Long vehicleId) {
+        Price cached = prices.getIfPresent(vehicleId);
+        if (cached != null) {
+            return Mono.just(format(cached));
         }
-        return "(consult price)";
+        return lookups.execute(vehicleId, () -> client
+                .get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/services/price")
+                        .queryParam("vehicleId", vehicleId)
+                        .build()
+                )
+                .retrieve().bodyToMono(Price.class)
+                .map(price -> {
+                    prices.put(vehicleId, price);
+                    return format(price);
+                })
+                .defaultIfEmpty(format(null))
+                .transform(call -> guard("getPrice", call))
+                .onErrorResume(e -> {
+                    logFailure(vehicleId, e);
+                    return Mono.just(PRICE_UNAVAILABLE);
+                }));
     }
 
     /**
-     * Gets a new Random vehicle price from the pricing client, given vehicle ID.
+     * Gets the prices of many vehicles through the pricing bulk endpoint.
      *
-     * @param vehicleId ID number of the vehicle for which to get the price
-     * @return Currency and price of the requested vehicle,
-     * error message that the vehicle ID is invalid, or note that the
-     * service is down.
+     * @param vehicleIds ID numbers of the vehicles for which to get the price
+     * @return Currency and price keyed by vehicle ID. Vehicles the pricing
+     * service has no price for, or all of them if the service is down,
+     * are absent from the map.
      */
-    public String getNewPrice(Long vehicleId, String currency, BigDecimal amount) {
-        try {
-            Price price = client
-                    .get()
-                    .uri(uriBuilder -> uriBuilder
-                            .path("/services/price/getNewPrice")
-                            .queryParam("vehicleId", vehicleId)
-                            .queryParam("currency", currency)
-                            .queryParam("amount", amount)
-                            .build()
-                    )
-                    .retrieve().bodyToMono(Price.class).block();
+    public Map<Long, String> getPrices(Set<Long> vehicleIds) {
+        return getPricesAsync(vehicleIds).block();
+    }
 
-            return String.format("%s %s", (price != null) ? price.getCurrency() : "USD", (price != null) ? price.getPrice() : 0);
+    /**
+     * Gets the prices of many vehicles without blocking the caller. Cached
+     * prices are used as is; the remaining IDs are sent in chunks of at most
+     * "pricing.batch-size" so the query string stays within the server's
+     * header limits, and chunks are requested concurrently.
+     *
+     * @param vehicleIds ID numbers of the vehicles for which to get the price
+     * @return Currency and price keyed by vehicle ID, never an error; each
+     *   subscription checks the cache again and fills its own map
+     */
+    public Mono<Map<Long, String>> getPricesAsync(Set<Long> vehicleIds) {
+        return Mono.defer(() -> lookupPrices(vehicleIds));
+    }
 
-        } catch (Exception e) {
-            log.error("Unexpected error retrieving price for vehicle {}", vehicleId, e);
+    private Mono<Map<Long, String>> lookupPrices(Set<Long> vehicleIds) {
+        Map<Long, String> found = new HashMap<>();
+        Set<Long> missing = new HashSet<>();
+        prices.getAllPresent(vehicleIds).forEach((vehicleId, price) -> found.put(vehicleId, format(price)));
+        for (Long vehicleId : vehicleIds) {
+            if (!found.containsKey(vehicleId)) {
+                missing.add(vehicleId);
+            }
+        }
+        if (missing.isEmpty()) {
+            return Mono.just(found);
+        }
+        return Flux.fromIterable(partition(missing))
+                .flatMap(this::fetchPrices)
+                .doOnNext(price -> prices.put(price.getVehicleId(), price))
+                .collect(() -> found, (result, price) -> result.put(price.getVehicleId(), format(price)));
+    }
+
+    private Flux<Price> fetchPrices(List<Long> vehicleIds) {
+        return client
+                .get()
+                .uri(uriBuilder -> uriBuilder
+                        .path("/services/price/getPrices")
+                        .queryParam("vehicleList", vehicleIds.toArray())
+                        .build()
+                )
+                .retrieve().bodyToFlux(Price.class)
+                .collectList()
+                .transform(call -> guard("getPrices", call))
+                .flatMapMany(Flux::fromIterable)
+                .onErrorResume(e -> {
+                    if (isRejected(e)) {
+                        log.debug("Pricing call for {} vehicles rejected: {}", vehicleIds.size(), e.getMessage());
+                    } else {
+                        log.error("Unexpected error retrieving prices for {} vehicles", vehicleIds.size(), e);
+                    }
+                    return Flux.empty();
+                });
+    }
+
+    private List<List<Long>> partition(Set<Long> vehicleIds) {
+        List<List<Long>> chunks = new ArrayList<>();
+        List<Long> chunk = new ArrayList<>(Math.min(batchSize, vehicleIds.size()));
+        for (Long vehicleId : vehicleIds) {
+            chunk.add(vehicleId);
+            if (chunk.size() == batchSize) {
+                chunks.add(chunk);
+                chunk = new ArrayList<>(batchSize);
+            }
+        }
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
         }
-        return "(consult price)";
+        return chunks;
+    }
+
+    /**
+     * Sets a vehicle price through the pricing client.
+     *
+     * @param vehicleId ID number of the vehicle for which to set the price
+     * @param currency currency of the price, or null for the service default
+     * @param amount the price
+     * @return Currency and price of the vehicle as stored, or note that the
+     * service is down.
+     */
+    public String setPrice(Long vehicleId, String currency, BigDecimal amount) {
+        return setPriceAsync(vehicleId, currency, amount).block();
+    }
+
+    /**
+     * Sets a vehicle price through the pricing client without blocking the caller.
+     * The write is an idempotent PUT carrying an Idempotency-Key chosen once
+     * per call, so resubscribing to the returned Mono never writes twice.
+     * The cached price is replaced with the one the pricing service stored, or
+     * evicted if the outcome of the write is unknown.
+     *
+     * @param vehicleId ID number of the vehicle for which to set the price
+     * @param currency currency of the price, or null for the service default
+     * @param amount the price
+     * @return Currency and price of the vehicle as stored, or the fallback value
+     */
+    public Mono<String> setPriceAsync(Long vehicleId, String currency, BigDecimal amount) {
+        String idempotencyKey = UUID.randomUUID().toString();
+        Price body = new Price();
+        body.setCurrency(currency);
+        body.setPrice(amount);
+        return client
+                .put()
+                .uri("/services/price/{vehicleId}", vehicleId)
+                .header(IDEMPOTENCY_KEY, idempotencyKey)
+                .syncBody(body)
+                .retrieve().bodyToMono(Price.class)
+                .map(price -> {
+                    prices.put(vehicleId, price);
+                    return format(price);
+                })
+                .defaultIfEmpty(format(null))
+                .transform(call -> guard("setPrice", call))
+                .onErrorResume(e -> {
+                    logFailure(vehicleId, e);
+                    prices.invalidate(vehicleId);
+                    return Mono.just(PRICE_UNAVAILABLE);
+                });
     }
 
     /**
-     * Deletes the price from the pricing client, given vehicle ID.
+     * Deletes the price from the pricing client, given vehicle ID,
+     * and evicts it from the local cache.
      *
      * @param vehicleId ID number of the vehicle for which to get the price
      * @return Status
      */
     public String deletePrice(Long vehicleId) {
-        try {
-            String status = client
+        return deletePriceAsync(vehicleId).block();
+    }
+
+    /**
+     * Deletes the price from the pricing client without blocking the caller,
+     * and evicts it from the local cache.
+     *
+     * @param vehicleId ID number of the vehicle for which to delete the price
+     * @return Status, or the failure status if the delete failed or was rejected
+     */
+    public Mono<String> deletePriceAsync(Long vehicleId) {
+        return Mono.defer(() -> {
+            prices.invalidate(vehicleId);
+            return client
                     .delete()
                     .uri(uriBuilder -> uriBuilder
                             .path("/services/price")
                             .queryParam("vehicleId", vehicleId)
                             .build()
                     )
-                    .retrieve().bodyToMono(String.class).block();
+                    .retrieve().bodyToMono(String.class)
+                    .transform(call -> guard("deletePrice", call));
+        })
+                // A read racing with the delete may have cached the old price again
+                .doOnSuccess(status -> prices.invalidate(vehicleId))
+                .onErrorResume(e -> {
+                    logFailure(vehicleId, e);
+                    return Mono.just(FAILURE);
+                });
+    }
 
-            return status;
+    /**
+     * Bounds a remote call with the pricing timeout, then the bulkhead, then
+     * the circuit breaker, which is checked first when the call is made.
+     * The timing covers all three, so rejected calls count as fallbacks.
+     */
+    private <T> Mono<T> guard(String method, Mono<T> call) {
+        return metrics.time(method, call
+                .timeout(timeout)
+                .transform(BulkheadOperator.of(bulkhead))
+                .transform(CircuitBreakerOperator.of(circuitBreaker)));
+    }
 
-        } catch (Exception e) {
+    /**
+     * Rejections are expected while the pricing service is unhealthy, and are
+     * logged without a stack trace to keep the fallback path cheap.
+     */
+    private void logFailure(Long vehicleId, Throwable e) {
+        if (isRejected(e)) {
+            log.debug("Pricing call for vehicle {} rejected: {}", vehicleId, e.getMessage());
+        } else {
             log.error("Unexpected error retrieving price for vehicle {}", vehicleId, e);
         }
-        return FAILURE;
+    }
+
+    private static boolean isRejected(Throwable e) {
+        return e instanceof CallNotPermittedException || e instanceof BulkheadFullException;
+    }
+
+    private static String format(Price price) {
+        return String.format("%s %s", (price != null) ? price.getCurrency() : "USD", (price != null) ? price.getPrice() : 0);
     }
 }
@@ -0,0 +1,120 @@
+package com.udacity.vehicles.config;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.timeout.ReadTimeoutHandler;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import reactor.netty.Connection;
+import reactor.netty.ConnectionObserver;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds a Reactor Netty connector with its own fixed-size, keep-alive
+ * connection pool and connect/read timeouts for one downstream service,
+ * and publishes the state of that pool as gauges tagged with the client name:
+ * <ul>
+ *     <li>http.client.pool.max: configured pool size</li>
+ *     <li>http.client.pool.active: connections currently leased to a request</li>
+ *     <li>http.client.pool.idle: open connections waiting in the pool</li>
+ *     <li>http.client.pool.pending: requests waiting for a connection</li>
+ * </ul>
+ * Reactor Netty 0.8 does not expose pool metrics itself, so these are
+ * derived from connection lifecycle events and from the requests in flight.
+ * Open and leased connections are tracked per channel rather than counted,
+ * so a connection closed while leased, which is never released, stops
+ * counting as active.
+ */
+public class PooledConnector {
+
+    private static final String READ_TIMEOUT = "readTimeout";
+
+    private final Set<Channel> open = ConcurrentHashMap.newKeySet();
+    private final Set<Channel> leased = ConcurrentHashMap.newKeySet();
+    private final AtomicInteger outstanding = new AtomicInteger();
+    private final Settings settings;
+    private final ClientHttpConnector connector;
+
+    public PooledConnector(String name, Settings settings, MeterRegistry meterRegistry) {
+        this.settings = settings;
+        ConnectionProvider provider = ConnectionProvider.fixed(name, settings.maxConnections, settings.acquireTimeoutMillis);
+        HttpClient httpClient = HttpClient.create(provider)
+                .keepAlive(true)
+                .observe(this::onStateChange)
+                .tcpConfiguration(tcpClient -> tcpClient
+                        .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, settings.connectTimeoutMillis)
+                        .option(ChannelOption.SO_KEEPALIVE, true))
+                // Added for every request, not once per connection, so each exchange on a
+                // pooled connection is covered; a handler already present is kept as is
+                .doOnRequest((request, connection) -> connection.addHandlerLast(READ_TIMEOUT,
+                        new ReadTimeoutHandler(settings.readTimeoutMillis, TimeUnit.MILLISECONDS)));
+        this.connector = new ReactorClientHttpConnector(httpClient);
+
+        Gauge.builder("http.client.pool.max", this, c -> c.settings.maxConnections)
+                .tag("client", name).register(meterRegistry);
+        Gauge.builder("http.client.pool.active", this, c -> c.leased.size())
+                .tag("client", name).register(meterRegistry);
+        Gauge.builder("http.client.pool.idle", this, c -> Math.max(0, c.open.size() - c.leased.size()))
+                .tag("client", name).register(meterRegistry);
+        Gauge.builder("http.client.pool.pending", this, c -> Math.max(0, c.outstanding.get() - c.leased.size()))
+                .tag("client", name).register(meterRegistry);
+    }
+
+    /**
+     * @return the connector to plug into a WebClient builder
+     */
+    public ClientHttpConnector connector() {
+        return connector;
+    }
+
+    /**
+     * Counts the requests in flight; add it to the WebClient using this connector.
+     * @return filter tracking each exchange from subscription to completion
+     */
+    public ExchangeFilterFunction requestTracker() {
+        return (request, next) -> next.exchange(request)
+                .doOnSubscribe(subscription -> outstanding.incrementAndGet())
+                .doFinally(signal -> outstanding.decrementAndGet());
+    }
+
+    private void onStateChange(Connection connection, ConnectionObserver.State state) {
+        Channel channel = connection.channel();
+        if (state == ConnectionObserver.State.CONNECTED) {
+            open.add(channel);
+        } else if (state == ConnectionObserver.State.CONFIGURED || state == ConnectionObserver.State.ACQUIRED) {
+            leased.add(channel);
+        } else if (state == ConnectionObserver.State.RELEASED) {
+            leased.remove(channel);
+        } else if (state == ConnectionObserver.State.DISCONNECTING) {
+            leased.remove(channel);
+            open.remove(channel);
+        }
+    }
+
+    /**
+     * Pool and timeout settings of one downstream connector.
+     */
+    public static class Settings {
+
+        private final int maxConnections;
+        private final long acquireTimeoutMillis;
+        private final int connectTimeoutMillis;
+        private final long readTimeoutMillis;
+
+        public Settings(int maxConnections, long acquireTimeoutMillis, int connectTimeoutMillis, long readTimeoutMillis) {
+            this.maxConnections = maxConnections;
+            this.acquireTimeoutMillis = acquireTimeoutMillis;
+            this.connectTimeoutMillis = connectTimeoutMillis;
+            this.readTimeoutMillis = readTimeoutMillis;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package com.udacity.vehicles.config;
+
+import brave.Span;
+import brave.Tracer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+/**
+ * Records a span, named after the repository and method, around every
+ * repository call made while a request is being traced, so time spent in
+ * the database shows up next to the pricing and maps calls. Calls made
+ * outside a trace, such as at startup, are not traced. For methods that
+ * return a stream, the span covers opening it, not reading it.
+ */
+@Aspect
+@Component
+public class RepositoryTracing {
+
+    private final Tracer tracer;
+
+    public RepositoryTracing(Tracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Around("execution(* org.springframework.data.repository.Repository+.*(..))")
+    public Object trace(ProceedingJoinPoint call) throws Throwable {
+        if (tracer.currentSpan() == null) {
+            return call.proceed();
+        }
+        Span span = tracer.nextSpan().name(repository(call) + "." + call.getSignature().getName()).start();
+        try (Tracer.SpanInScope scope = tracer.withSpanInScope(span)) {
+            return call.proceed();
+        } catch (Throwable e) {
+            span.error(e);
+            throw e;
+        } finally {
+            span.finish();
+        }
+    }
+
+    /**
+     * Spring Data implements each repository interface with a proxy whose
+     * first interface is the one declared by the application.
+     */
+    private static String repository(ProceedingJoinPoint call) {
+        Class<?>[] interfaces = call.getTarget().getClass().getInterfaces();
+        return interfaces.length > 0
+                ? interfaces[0].getSimpleName()
+                : call.getSignature().getDeclaringType().getSimpleName();
+    }
+}
@@ -0,0 +1,83 @@
+package com.udacity.vehicles.config;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+
+import java.time.Duration;
+
+/**
+ * Declares a circuit breaker and a bulkhead for each remote dependency.
+ * The circuit breaker opens when too many recent calls failed or were slow,
+ * after which calls fail immediately until the wait duration has passed.
+ * A call counts as slow well before it times out, so the breaker can open
+ * on a dependency that is slowing down, not only on one that has stopped.
+ * The bulkhead caps the number of concurrent calls and rejects the excess
+ * straight away instead of queueing it.
+ */
+@Configuration
+public class ResilienceConfig {
+
+    @Bean
+    public CircuitBreaker pricingCircuitBreaker(
+            @Value("${pricing.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${pricing.circuit-breaker.window-size:50}") int windowSize,
+            @Value("${pricing.circuit-breaker.open-duration-ms:10000}") long openDurationMillis,
+            @Value("${pricing.circuit-breaker.slow-call-ms:500}") long slowCallMillis) {
+        return CircuitBreaker.of("pricing",
+                circuitBreakerConfig(failureRateThreshold, windowSize, openDurationMillis, slowCallMillis));
+    }
+
+    @Bean
+    public CircuitBreaker mapsCircuitBreaker(
+            @Value("${maps.circuit-breaker.failure-rate-threshold:50}") float failureRateThreshold,
+            @Value("${maps.circuit-breaker.window-size:50}") int windowSize,
+            @Value("${maps.circuit-breaker.open-duration-ms:10000}") long openDurationMillis,
+            @Value("${maps.circuit-breaker.slow-call-ms:500}") long slowCallMillis) {
+        return CircuitBreaker.of("maps",
+                circuitBreakerConfig(failureRateThreshold, windowSize, openDurationMillis, slowCallMillis));
+    }
+
+    @Bean
+    public Bulkhead pricingBulkhead(@Value("${pricing.bulkhead.max-concurrent-calls:100}") int maxConcurrentCalls) {
+        return Bulkhead.of("pricing", bulkheadConfig(maxConcurrentCalls));
+    }
+
+    @Bean
+    public Bulkhead mapsBulkhead(@Value("${maps.bulkhead.max-concurrent-calls:100}") int maxConcurrentCalls) {
+        return Bulkhead.of("maps", bulkheadConfig(maxConcurrentCalls));
+    }
+
+    /**
+     * Only errors that say something about the health of the dependency are
+     * recorded: a 4xx response (e.g. no price for a vehicle) is a normal answer,
+     * and a rejected call never reached the dependency.
+     */
+    private static CircuitBreakerConfig circuitBreakerConfig(float failureRateThreshold, int windowSize,
+                                                             long openDurationMillis, long slowCallMillis) {
+        return CircuitBreakerConfig.custom()
+                .failureRateThreshold(failureRateThreshold)
+                .slowCallRateThreshold(failureRateThreshold)
+                .slowCallDurationThreshold(Duration.ofMillis(slowCallMillis))
+                .slidingWindowSize(windowSize)
+                .minimumNumberOfCalls(Math.min(windowSize, 10))
+                .waitDurationInOpenState(Duration.ofMillis(openDurationMillis))
+                .recordException(e -> !(e instanceof WebClientResponseException)
+                        || ((WebClientResponseException) e).getStatusCode().is5xxServerError())
+                .ignoreExceptions(BulkheadFullException.class)
+                .build();
+    }
+
+    private static BulkheadConfig bulkheadConfig(int maxConcurrentCalls) {
+        return BulkheadConfig.custom()
+                .maxConcurrentCalls(maxConcurrentCalls)
+                .maxWaitDuration(Duration.ZERO)
+                .build();
+    }
+}
@@ -5,4 +5,9 @@ public interface ApplicationConstants {
     String FAILURE = "Transaction Failed";
     String SUCCESS = "Success";
     String CAR_NOT_FOUND = "Could not find a car with that Id";
+    String CAR_CONFLICT = "The car was changed by another request; reload it and try again";
+    String PRICE_UNAVAILABLE = "(consult price)";
+    String INVALID_SORT = "Invalid sort property";
+    String NDJSON_VALUE = "application/x-ndjson";
+    int DEFAULT_PAGE_SIZE = 20;
 }
@@ -30,6 +30,9 @@ public class Car {
     @LastModifiedDate
     private LocalDateTime modifiedAt;
 
+    @Version
+    private Long version;
+
     @NotNull
     @Enumerated(EnumType.STRING)
     private Condition condition;
@@ -1,9 +1,37 @@
 package com.udacity.vehicles.domain.car;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.stereotype.Repository;
 
+import javax.persistence.QueryHint;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
 @Repository
 public interface CarRepository extends JpaRepository<Car, Long> {
 
+    /**
+     * Keyset page: cars whose id follows the given cursor, in ascending id order.
+     */
+    List<Car> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    /**
+     * Keyset page: cars whose id precedes the given cursor, in descending id order.
+     */
+    List<Car> findByIdLessThanOrderByIdDesc(Long id, Pageable pageable);
+
+    /**
+     * Forward-only read of every car, in ascending id order, fetched from the
+     * database in batches. Must be consumed inside a transaction and closed.
+     */
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"),
+            @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query("select c from Car c order by c.id")
+    Stream<Car> streamAll();
 }
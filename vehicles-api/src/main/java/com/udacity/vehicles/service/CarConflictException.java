@@ -0,0 +1,11 @@
+package com.udacity.vehicles.service;
+
+public class CarConflictException extends RuntimeException {
+
+    public CarConflictException() {
+    }
+
+    public CarConflictException(String message) {
+        super(message);
+    }
+}
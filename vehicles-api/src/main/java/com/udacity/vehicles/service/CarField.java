@@ -0,0 +1,107 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.Details;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+/**
+ * The fields of a car that an update can change. Each one is compared and
+ * copied on its own, so that concurrent updates of different fields can
+ * be merged. The location counts as one field, as moving a car changes
+ * both of its coordinates.
+ */
+enum CarField {
+
+    CONDITION(Car::getCondition, (from, to) -> to.setCondition(from.getCondition())),
+    LOCATION(car -> Arrays.asList(car.getLocation().getLat(), car.getLocation().getLon()), (from, to) -> {
+        to.getLocation().setLat(from.getLocation().getLat());
+        to.getLocation().setLon(from.getLocation().getLon());
+    }),
+    BODY(details(Details::getBody), (from, to) -> to.getDetails().setBody(from.getDetails().getBody())),
+    MODEL(details(Details::getModel), (from, to) -> to.getDetails().setModel(from.getDetails().getModel())),
+    MANUFACTURER(details(details -> manufacturerCode(details.getManufacturer())),
+            (from, to) -> to.getDetails().setManufacturer(from.getDetails().getManufacturer())),
+    NUMBER_OF_DOORS(details(Details::getNumberOfDoors),
+            (from, to) -> to.getDetails().setNumberOfDoors(from.getDetails().getNumberOfDoors())),
+    FUEL_TYPE(details(Details::getFuelType), (from, to) -> to.getDetails().setFuelType(from.getDetails().getFuelType())),
+    ENGINE(details(Details::getEngine), (from, to) -> to.getDetails().setEngine(from.getDetails().getEngine())),
+    MILEAGE(details(Details::getMileage), (from, to) -> to.getDetails().setMileage(from.getDetails().getMileage())),
+    MODEL_YEAR(details(Details::getModelYear), (from, to) -> to.getDetails().setModelYear(from.getDetails().getModelYear())),
+    PRODUCTION_YEAR(details(Details::getProductionYear),
+            (from, to) -> to.getDetails().setProductionYear(from.getDetails().getProductionYear())),
+    EXTERNAL_COLOR(details(Details::getExternalColor),
+            (from, to) -> to.getDetails().setExternalColor(from.getDetails().getExternalColor()));
+
+    private final Function<Car, Object> value;
+    private final BiConsumer<Car, Car> copy;
+
+    CarField(Function<Car, Object> value, BiConsumer<Car, Car> copy) {
+        this.value = value;
+        this.copy = copy;
+    }
+
+    /**
+     * Takes the value of every field of a car, so that later changes can
+     * be found even once the car itself has been changed.
+     *
+     * @param car the car to read
+     * @return the value of each field
+     */
+    static Map<CarField, Object> values(Car car) {
+        Map<CarField, Object> values = new EnumMap<>(CarField.class);
+        for (CarField field : values()) {
+            values.put(field, field.value.apply(car));
+        }
+        return values;
+    }
+
+    /**
+     * Finds the fields in which a car differs from earlier values.
+     *
+     * @param base the values to compare with
+     * @param car the car to compare
+     * @return the fields whose value in the car is not the one in base
+     */
+    static Set<CarField> changed(Map<CarField, Object> base, Car car) {
+        Set<CarField> changed = EnumSet.noneOf(CarField.class);
+        for (CarField field : values()) {
+            if (!Objects.equals(base.get(field), field.value.apply(car))) {
+                changed.add(field);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Copies the given fields from one car to another, leaving the others
+     * as they are.
+     *
+     * @param fields the fields to copy
+     * @param from the car to copy from
+     * @param to the car to copy to
+     */
+    static void copy(Set<CarField> fields, Car from, Car to) {
+        fields.forEach(field -> field.copy.accept(from, to));
+    }
+
+    private static Function<Car, Object> details(Function<Details, Object> value) {
+        return car -> value.apply(car.getDetails());
+    }
+
+    /**
+     * Manufacturers are compared by code, as updates may send a different
+     * name or none at all for the same manufacturer.
+     */
+    private static Integer manufacturerCode(Manufacturer manufacturer) {
+        return manufacturer == null ? null : manufacturer.getCode();
+    }
+}
@@ -7,11 +7,32 @@ import com.udacity.vehicles.domain.car.Car;
 import com.udacity.vehicles.domain.car.CarRepository;
 import com.udacity.vehicles.domain.manufacturer.Manufacturer;
 import com.udacity.vehicles.domain.manufacturer.ManufacturerRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import reactor.core.publisher.Mono;
 
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.udacity.vehicles.constants.ApplicationConstants.*;
 
@@ -19,30 +40,93 @@ import static com.udacity.vehicles.constants.ApplicationConstants.*;
  * Implements the car service create, read, update or delete
  * information about vehicles, as well as gather related
  * location and price data when desired.
+ * Blocking operations are timed as "cars.service", tagged by method;
+ * the remote calls behind enrichment are timed by the clients.
  */
 @Service
 public class CarService {
 
+    private static final Logger log = LoggerFactory.getLogger(CarService.class);
+    private static final String TIMER = "cars.service";
 
     private final CarRepository repository;
     private final MapsClient mapsClient;
     private final PriceClient priceClient;
     private final ManufacturerRepository manufacturerRepository;
+    private final int maxUpdateRetries;
+    private final Duration enrichTimeout;
 
-    public CarService(CarRepository repository, MapsClient mapsClient, PriceClient priceClient, ManufacturerRepository manufacturerRepository) {
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    public CarService(CarRepository repository, MapsClient mapsClient, PriceClient priceClient, ManufacturerRepository manufacturerRepository,
+                      @Value("${cars.update.max-retries:3}") int maxUpdateRetries,
+                      @Value("${cars.enrich.timeout-ms:3000}") long enrichTimeoutMillis) {
         this.repository = repository;
         this.mapsClient = mapsClient;
         this.priceClient = priceClient;
         this.manufacturerRepository = manufacturerRepository;
+        this.maxUpdateRetries = maxUpdateRetries;
+        this.enrichTimeout = Duration.ofMillis(enrichTimeoutMillis);
+    }
+
+    /**
+     * Gathers one page of vehicles
+     *
+     * @param pageable the page number, size and sort order to read
+     * @return a page of vehicles in the CarRepository, including location and price
+     */
+    @Timed(value = TIMER, histogram = true)
+    public Page<Car> list(Pageable pageable) {
+        Page<Car> page = repository.findAll(pageable);
+        enrichList(page.getContent());
+        return page;
+    }
+
+    /**
+     * Gathers the vehicles following a keyset cursor, in ascending ID order.
+     * Unlike offset pages, the cost does not grow with the cursor position.
+     *
+     * @param after the ID of the last vehicle already seen (0 to start)
+     * @param size the maximum number of vehicles to return
+     * @return vehicles with an ID greater than the cursor, including location and price
+     */
+    @Timed(value = TIMER, histogram = true)
+    public List<Car> listAfter(Long after, int size) {
+        return enrichList(repository.findByIdGreaterThanOrderByIdAsc(after, PageRequest.of(0, size)));
     }
 
     /**
-     * Gathers a list of all vehicles
+     * Gathers the vehicles preceding a keyset cursor, in ascending ID order.
      *
-     * @return a list of all vehicles in the CarRepository
+     * @param before the ID of the first vehicle already seen
+     * @param size the maximum number of vehicles to return
+     * @return vehicles with an ID lower than the cursor, including location and price
      */
-    public List<Car> list() {
-        return repository.findAll();
+    @Timed(value = TIMER, histogram = true)
+    public List<Car> listBefore(Long before, int size) {
+        List<Car> cars = new ArrayList<>(repository.findByIdLessThanOrderByIdDesc(before, PageRequest.of(0, size)));
+        Collections.reverse(cars);
+        return enrichList(cars);
+    }
+
+    /**
+     * Reads every vehicle in ID order and hands each one to the sink as it
+     * arrives from the database. Each car is detached once consumed, so
+     * memory use does not grow with the size of the table. Vehicles are
+     * not enriched with price or address.
+     *
+     * @param sink receives each vehicle in turn
+     */
+    @Transactional(readOnly = true)
+    @Timed(value = TIMER, histogram = true)
+    public void export(Consumer<Car> sink) {
+        try (Stream<Car> cars = repository.streamAll()) {
+            cars.forEach(car -> {
+                sink.accept(car);
+                entityManager.detach(car);
+            });
+        }
     }
 
     /**
@@ -51,22 +135,26 @@ public class CarService {
      * @param id the ID number of the car to gather information on
      * @return the requested car's information, including location and price
      */
+    @Timed(value = TIMER, histogram = true)
     public Car findById(Long id) {
-        Car result;
+        return enrich(load(id)).block();
+    }
+
+    /**
+     * Gets car information by ID from the repository only (or throws
+     * exception if non-existent)
+     *
+     * @param id the ID number of the car to gather information on
+     * @return the requested car's information, without location and price
+     */
+    @Timed(value = TIMER, histogram = true)
+    public Car load(Long id) {
         Optional<Car> car = this.repository.findById(id);
         if (car.isPresent()) {
-            result = car.get();
+            return car.get();
         } else {
             throw new CarNotFoundException(CAR_NOT_FOUND);
         }
-
-        String carPrice = priceClient.getPrice(result.getId());
-        result.setPrice(carPrice);
-
-        Location address = mapsClient.getAddress(result.getLocation());
-        result.setLocation(address);
-
-        return result;
     }
 
     /**
@@ -75,31 +163,169 @@ public class CarService {
      * @param car A car object, which can be either new or existing
      * @return the new/updated car is stored in the repository
      */
+    @Timed(value = TIMER, histogram = true)
     public Car save(Car car) {
-        Car carToSave = car;
+        String requestedPrice = car.getPrice();
+        return enrich(persist(car), requestedPrice).block();
+    }
+
+    /**
+     * Either creates or updates a vehicle in the repository only, based
+     * on prior existence of car
+     *
+     * @param car A car object, which can be either new or existing
+     * @return the new/updated car, without location and price
+     * @throws CarConflictException the car was changed since the version
+     *   the caller read, or kept changing while the update was retried
+     */
+    @Timed(value = TIMER, histogram = true)
+    public Car persist(Car car) {
         if (car.getId() != null && car.getId() > 0) {
-            carToSave =  repository.findById(car.getId())
-                    .map(carToBeUpdated -> {
-                        carToBeUpdated.setCondition(car.getCondition());
-                        carToBeUpdated.setDetails(car.getDetails());
-                        carToBeUpdated.setLocation(car.getLocation());
-                        return carToBeUpdated;
-                    }).orElseThrow(CarNotFoundException::new);
-        } else {
-            Manufacturer manufacturer = car.getDetails().getManufacturer();
-            manufacturerRepository.save(manufacturer);
+            return update(car);
+        }
+        Manufacturer manufacturer = car.getDetails().getManufacturer();
+        manufacturerRepository.save(manufacturer);
+        return repository.save(car);
+    }
+
+    /**
+     * Applies the fields in which the given car differs from the stored
+     * one it is based on. Conflicts are detected through the car's version
+     * column, without locks. When the caller sent a version other than
+     * the stored one, the car it read is gone, so any change is a conflict.
+     * When another write lands between reading and saving the car, the
+     * car is read again: if that write changed none of the fields this
+     * update changes, the update is applied on top of it, up to
+     * "cars.update.max-retries" times; otherwise it is a conflict.
+     */
+    private Car update(Car car) {
+        Car carToBeUpdated = repository.findById(car.getId()).orElseThrow(CarNotFoundException::new);
+        if (car.getVersion() != null && !car.getVersion().equals(carToBeUpdated.getVersion())) {
+            throw new CarConflictException(CAR_CONFLICT);
+        }
+        Map<CarField, Object> base = CarField.values(carToBeUpdated);
+        Set<CarField> changes = CarField.changed(base, car);
+        for (int attempt = 0; ; attempt++) {
+            CarField.copy(changes, car, carToBeUpdated);
+            try {
+                return repository.save(carToBeUpdated);
+            } catch (ObjectOptimisticLockingFailureException ex) {
+                if (attempt >= maxUpdateRetries) {
+                    throw new CarConflictException(CAR_CONFLICT);
+                }
+            }
+            carToBeUpdated = repository.findById(car.getId()).orElseThrow(CarNotFoundException::new);
+            Set<CarField> concurrentChanges = CarField.changed(base, carToBeUpdated);
+            if (!Collections.disjoint(changes, concurrentChanges)) {
+                throw new CarConflictException(CAR_CONFLICT);
+            }
+            log.debug("Car {} changed {} during update, merging {}", car.getId(), concurrentChanges, changes);
+        }
+    }
+
+    /**
+     * Sets the price and address of every car in the list with bulk
+     * requests to the pricing and maps services, instead of one request
+     * per car.
+     *
+     * @param cars the cars to enrich
+     * @return the same cars, including location and price
+     */
+    private List<Car> enrichList(List<Car> cars) {
+        return enrichListAsync(cars).block();
+    }
+
+    /**
+     * Sets the price and address of every car in the list with bulk
+     * requests to the pricing and maps services, without blocking the
+     * caller. Both lookups run concurrently and fall back to default
+     * values, so this never fails because of a remote service. Each lookup
+     * gives up after "cars.enrich.timeout-ms" even if its client does not.
+     *
+     * @param cars the cars to enrich
+     * @return the same cars, including location and price
+     */
+    public Mono<List<Car>> enrichListAsync(List<Car> cars) {
+        if (cars.isEmpty()) {
+            return Mono.just(cars);
         }
-        Car savedCar = repository.save(carToSave);
-        if(car.getPrice() != null){
-            String carPrice = priceClient.getNewPrice(savedCar.getId(),null,new BigDecimal(car.getPrice()));
-            savedCar.setPrice(carPrice);
+        Set<Long> ids = cars.stream().map(Car::getId).collect(Collectors.toSet());
+        List<Location> locations = cars.stream()
+                .map(Car::getLocation)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
+        return Mono.zip(
+                priceClient.getPricesAsync(ids).timeout(enrichTimeout, Mono.just(Collections.emptyMap())),
+                mapsClient.getAddressesAsync(locations).timeout(enrichTimeout, Mono.just(locations)))
+                .map(enrichment -> {
+                    Map<Long, String> prices = enrichment.getT1();
+                    cars.forEach(car -> car.setPrice(prices.getOrDefault(car.getId(), PRICE_UNAVAILABLE)));
+                    return cars;
+                });
+    }
+
+    /**
+     * Looks up the current price of a car, without its address. Prices
+     * held by the price client's cache cost no remote call.
+     *
+     * @param id the ID number of the car
+     * @return currency and price of the car, or the fallback value
+     */
+    public Mono<String> price(Long id) {
+        return priceClient.getPriceAsync(id);
+    }
+
+    /**
+     * Looks up the current price and address of a car.
+     *
+     * @param car the car to enrich
+     * @return the car, including location and price
+     */
+    public Mono<Car> enrich(Car car) {
+        return enrich(car, priceClient.getPriceAsync(car.getId()));
+    }
+
+    /**
+     * Looks up the address of a car just saved, and either stores the
+     * price requested for it or looks up its current price.
+     *
+     * @param car the car to enrich
+     * @param requestedPrice the price sent with the car, or null
+     * @return the car, including location and price
+     */
+    public Mono<Car> enrich(Car car, String requestedPrice) {
+        Mono<String> carPrice;
+        if(requestedPrice != null){
+            carPrice = priceClient.setPriceAsync(car.getId(),null,new BigDecimal(requestedPrice));
         }else{
-            String carPrice = priceClient.getPrice(savedCar.getId());
-            savedCar.setPrice(carPrice);
+            carPrice = priceClient.getPriceAsync(car.getId());
         }
-        Location address = mapsClient.getAddress(savedCar.getLocation());
-        savedCar.setLocation(address);
-        return savedCar;
+        return enrich(car, carPrice);
+    }
+
+    /**
+     * Runs the price and address lookups for a car concurrently, so the
+     * caller waits for the slower of the two rather than their sum.
+     * Both lookups are bounded by their client timeouts and fall back
+     * to default values, so this never fails because of a remote service.
+     * Each lookup also gives up after "cars.enrich.timeout-ms", so callers
+     * that block on the result wait no longer than that, whatever the
+     * clients are configured with.
+     *
+     * @param car the car to enrich
+     * @param carPrice the pending price lookup for the car
+     * @return the car, including location and price
+     */
+    private Mono<Car> enrich(Car car, Mono<String> carPrice) {
+        Location location = car.getLocation();
+        return Mono.zip(
+                carPrice.timeout(enrichTimeout, Mono.just(PRICE_UNAVAILABLE)),
+                mapsClient.getAddressAsync(location).timeout(enrichTimeout, Mono.just(location)))
+                .map(enrichment -> {
+                    car.setPrice(enrichment.getT1());
+                    car.setLocation(enrichment.getT2());
+                    return car;
+                });
     }
 
     /**
@@ -107,16 +333,10 @@ public class CarService {
      *
      * @param id the ID number of the car to delete
      */
+    @Timed(value = TIMER, histogram = true)
     public String delete(Long id) {
         try {
-            Car result;
-            Optional<Car> car = this.repository.findById(id);
-            if (car.isPresent()) {
-                result = car.get();
-            } else {
-                throw new CarNotFoundException(CAR_NOT_FOUND);
-            }
-            repository.delete(result);
+            remove(id);
             priceClient.deletePrice(id);
         } catch (CarNotFoundException ex) {
             throw new CarNotFoundException(CAR_NOT_FOUND);
@@ -125,4 +345,26 @@ public class CarService {
         }
         return SUCCESS;
     }
+
+    /**
+     * Deletes a given car by ID from the repository only, leaving its
+     * price in place (or throws exception if non-existent)
+     *
+     * @param id the ID number of the car to delete
+     */
+    @Timed(value = TIMER, histogram = true)
+    public void remove(Long id) {
+        repository.delete(load(id));
+    }
+
+    /**
+     * Deletes the price of a car without blocking the caller. Never
+     * fails because of the pricing service.
+     *
+     * @param id the ID number of the car whose price to delete
+     * @return the status of the price deletion
+     */
+    public Mono<String> deletePriceAsync(Long id) {
+        return priceClient.deletePriceAsync(id);
+    }
 }
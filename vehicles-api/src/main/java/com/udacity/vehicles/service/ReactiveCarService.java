@@ -0,0 +1,84 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+
+import static com.udacity.vehicles.constants.ApplicationConstants.FAILURE;
+import static com.udacity.vehicles.constants.ApplicationConstants.SUCCESS;
+
+/**
+ * Non-blocking variant of the car service. Repository access still
+ * blocks, so it runs on the dedicated JDBC scheduler (sized to the
+ * connection pool); price and address lookups run on the web client's
+ * event loop. No request thread is held while either is in flight.
+ */
+@Service
+public class ReactiveCarService {
+
+    private final CarService carService;
+    private final CarRepository repository;
+    private final Scheduler jdbcScheduler;
+
+    public ReactiveCarService(CarService carService, CarRepository repository, Scheduler jdbcScheduler) {
+        this.carService = carService;
+        this.repository = repository;
+        this.jdbcScheduler = jdbcScheduler;
+    }
+
+    /**
+     * Gathers one page of vehicles
+     *
+     * @param pageable the page number, size and sort order to read
+     * @return a page of vehicles in the CarRepository, including location and price
+     */
+    public Mono<Page<Car>> list(Pageable pageable) {
+        return Mono.fromCallable(() -> repository.findAll(pageable))
+                .subscribeOn(jdbcScheduler)
+                .flatMap(page -> carService.enrichListAsync(page.getContent()).thenReturn(page));
+    }
+
+    /**
+     * Gets car information by ID (or signals CarNotFoundException if non-existent)
+     *
+     * @param id the ID number of the car to gather information on
+     * @return the requested car's information, including location and price
+     */
+    public Mono<Car> findById(Long id) {
+        return Mono.fromCallable(() -> carService.load(id))
+                .subscribeOn(jdbcScheduler)
+                .flatMap(carService::enrich);
+    }
+
+    /**
+     * Either creates or updates a vehicle, based on prior existence of car
+     *
+     * @param car A car object, which can be either new or existing
+     * @return the new/updated car, including location and price
+     */
+    public Mono<Car> save(Car car) {
+        String requestedPrice = car.getPrice();
+        return Mono.fromCallable(() -> carService.persist(car))
+                .subscribeOn(jdbcScheduler)
+                .flatMap(savedCar -> carService.enrich(savedCar, requestedPrice));
+    }
+
+    /**
+     * Deletes a given car by ID
+     *
+     * @param id the ID number of the car to delete
+     * @return the status of the deletion; the price is deleted after the
+     *   car, on the web client's event loop
+     */
+    public Mono<String> delete(Long id) {
+        return Mono.fromRunnable(() -> carService.remove(id))
+                .subscribeOn(jdbcScheduler)
+                .then(Mono.defer(() -> carService.deletePriceAsync(id)))
+                .thenReturn(SUCCESS)
+                .onErrorResume(e -> !(e instanceof CarNotFoundException), e -> Mono.just(FAILURE));
+    }
+}
@@ -1,5 +1,7 @@
 package com.udacity.vehicles.api;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.gson.Gson;
 import com.udacity.vehicles.client.maps.MapsClient;
 import com.udacity.vehicles.client.prices.PriceClient;
@@ -8,6 +10,7 @@ import com.udacity.vehicles.domain.Location;
 import com.udacity.vehicles.domain.car.Car;
 import com.udacity.vehicles.domain.car.Details;
 import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import com.udacity.vehicles.service.CarConflictException;
 import com.udacity.vehicles.service.CarService;
 import org.junit.Before;
 import org.junit.Test;
@@ -18,21 +21,42 @@ import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMock
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageImpl;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.data.util.ClassTypeInformation;
 import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
 import org.springframework.test.context.junit4.SpringRunner;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
+import reactor.core.publisher.Mono;
 
 import java.net.URI;
+import java.time.LocalDateTime;
 import java.util.Collections;
+import java.util.function.Consumer;
 
+import static com.udacity.vehicles.constants.ApplicationConstants.CAR_CONFLICT;
+import static com.udacity.vehicles.constants.ApplicationConstants.NDJSON_VALUE;
 import static com.udacity.vehicles.constants.ApplicationConstants.SUCCESS;
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willAnswer;
 import static org.mockito.Mockito.verify;
 import static org.mockito.internal.verification.VerificationModeFactory.times;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.print;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
 /**
@@ -50,6 +74,12 @@ public class CarControllerTest {
     @Autowired
     private JacksonTester<Car> json;
 
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private CarResourceAssembler assembler;
+
     @MockBean
     private CarService carService;
 
@@ -59,6 +89,8 @@ public class CarControllerTest {
     @MockBean
     private MapsClient mapsClient;
 
+    private String price = "USD 100.00";
+
     /**
      * Creates pre-requisites for testing, such as an example car.
      */
@@ -68,8 +100,16 @@ public class CarControllerTest {
         car.setId(1L);
         given(carService.save(any())).willReturn(car);
         given(carService.findById(any())).willReturn(car);
+        given(carService.load(any())).willReturn(car);
+        given(carService.price(1L)).willAnswer(invocation -> Mono.just(price));
+        given(carService.enrich(any(Car.class))).willAnswer(invocation -> {
+            car.setPrice(price);
+            return Mono.just(car);
+        });
         given(carService.delete(any())).willReturn(SUCCESS);
-        given(carService.list()).willReturn(Collections.singletonList(car));
+        given(carService.list(any())).willReturn(
+                new PageImpl<>(Collections.singletonList(car), PageRequest.of(0, 20), 1));
+        given(carService.listAfter(0L, 1)).willReturn(Collections.singletonList(car));
     }
 
     /**
@@ -99,8 +139,68 @@ public class CarControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$._embedded").exists())
                 .andExpect(MockMvcResultMatchers.jsonPath("$._embedded.carList").isNotEmpty())
-                .andExpect(MockMvcResultMatchers.jsonPath("$._embedded.carList[*].details.mileage").value(32280));
-        verify(carService,times(1)).list();
+                .andExpect(MockMvcResultMatchers.jsonPath("$._embedded.carList[*].details.mileage").value(32280))
+                .andExpect(MockMvcResultMatchers.jsonPath("$.page.totalElements").value(1));
+        verify(carService,times(1)).list(any());
+    }
+
+    /**
+     * Tests that a keyset read links to the page following its last vehicle.
+     * @throws Exception if the keyset read of the vehicle list fails
+     */
+    @Test
+    public void listCarsAfterCursor() throws Exception {
+        mvc.perform(get("/cars").param("after", "0").param("size", "1"))
+                .andDo(print())
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$._embedded.carList").isNotEmpty())
+                .andExpect(MockMvcResultMatchers.jsonPath("$._links.next.href").value(containsString("after=1")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$._links.prev").doesNotExist());
+        verify(carService,times(1)).listAfter(0L, 1);
+    }
+
+    /**
+     * Tests that a keyset read before a cursor links to the pages on both
+     * sides of the vehicles it returns.
+     * @throws Exception if the keyset read of the vehicle list fails
+     */
+    @Test
+    public void listCarsBeforeCursor() throws Exception {
+        Car car = getCar();
+        car.setId(1L);
+        given(carService.listBefore(2L, 1)).willReturn(Collections.singletonList(car));
+
+        mvc.perform(get("/cars").param("before", "2").param("size", "1"))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$._embedded.carList[0].id").value(1))
+                .andExpect(MockMvcResultMatchers.jsonPath("$._links.prev.href").value(containsString("before=1")))
+                .andExpect(MockMvcResultMatchers.jsonPath("$._links.next.href").value(containsString("after=1")));
+        verify(carService,times(1)).listBefore(2L, 1);
+    }
+
+    /**
+     * Tests that a page size above the configured maximum is capped.
+     * @throws Exception if the read of the vehicle list fails
+     */
+    @Test
+    public void listCarsCapsPageSize() throws Exception {
+        mvc.perform(get("/cars").param("size", "100000"))
+                .andExpect(status().isOk());
+        verify(carService,times(1)).list(argThat(pageable -> pageable.getPageSize() == 500));
+    }
+
+    /**
+     * Tests that sorting by a property vehicles do not have is reported
+     * as a bad request.
+     * @throws Exception if the read of the vehicle list fails
+     */
+    @Test
+    public void listCarsByUnknownProperty() throws Exception {
+        given(carService.list(argThat(pageable -> pageable.getSort().getOrderFor("colour") != null))).willThrow(
+                new PropertyReferenceException("colour", ClassTypeInformation.from(Car.class), Collections.emptyList()));
+
+        mvc.perform(get("/cars").param("sort", "colour"))
+                .andExpect(status().isBadRequest());
     }
 
     /**
@@ -115,7 +215,112 @@ public class CarControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(MockMvcResultMatchers.jsonPath("$.details.mileage").value(32280));
 
-        verify(carService,times(1)).findById(1L);
+        verify(carService,times(1)).load(1L);
+    }
+
+    /**
+     * Tests that a conditional read with a current ETag is answered with 304
+     * without enriching the car again.
+     * @throws Exception if the conditional read for a single car fails
+     */
+    @Test
+    public void findUnmodifiedCar() throws Exception {
+        String etag = mvc.perform(get("/cars/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().exists("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        mvc.perform(get("/cars/{id}", 1L).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+
+        verify(carService,times(2)).load(1L);
+        verify(carService,times(1)).enrich(any(Car.class));
+    }
+
+    /**
+     * Tests that a conditional read with an ETag from before the car was
+     * changed gets the car again, with a new ETag.
+     * @throws Exception if the conditional read for a single car fails
+     */
+    @Test
+    public void findModifiedCar() throws Exception {
+        String etag = mvc.perform(get("/cars/{id}", 1L))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        Car modified = getCar();
+        modified.setId(1L);
+        modified.setModifiedAt(LocalDateTime.now().plusMinutes(1));
+        modified.setVersion(1L);
+        given(carService.load(any())).willReturn(modified);
+        String changed = mvc.perform(get("/cars/{id}", 1L).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotEquals(etag, changed);
+        verify(carService,times(2)).enrich(any(Car.class));
+    }
+
+    /**
+     * Tests that a conditional read with an ETag from before a price change
+     * gets the car again, with a new ETag, although the car itself did not
+     * change.
+     * @throws Exception if the conditional read for a single car fails
+     */
+    @Test
+    public void findCarWithChangedPrice() throws Exception {
+        String etag = mvc.perform(get("/cars/{id}", 1L))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("ETag");
+        price = "USD 200.00";
+        String changed = mvc.perform(get("/cars/{id}", 1L).header("If-None-Match", etag))
+                .andExpect(status().isOk())
+                .andExpect(MockMvcResultMatchers.jsonPath("$.price").value(price))
+                .andReturn().getResponse().getHeader("ETag");
+
+        assertNotEquals(etag, changed);
+        verify(carService,times(2)).enrich(any(Car.class));
+    }
+
+    /**
+     * Tests that a conditional read with the Last-Modified date it was
+     * given is answered with 304 without enriching the car again.
+     * @throws Exception if the conditional read for a single car fails
+     */
+    @Test
+    public void findCarNotModifiedSince() throws Exception {
+        String lastModified = mvc.perform(get("/cars/{id}", 1L))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader("Last-Modified");
+        mvc.perform(get("/cars/{id}", 1L).header("If-Modified-Since", lastModified))
+                .andExpect(status().isNotModified());
+
+        verify(carService,times(1)).enrich(any(Car.class));
+    }
+
+    /**
+     * Tests that with no enrichment period the response carries no
+     * Last-Modified, and conditional reads rely on the ETag alone.
+     * @throws Exception if the conditional read for a single car fails
+     */
+    @Test
+    public void findCarWithoutFreshnessPeriod() throws Exception {
+        MockMvc standalone = MockMvcBuilders
+                .standaloneSetup(new CarController(carService, assembler, objectMapper, 0))
+                .setMessageConverters(new MappingJackson2HttpMessageConverter(objectMapper))
+                .build();
+        String etag = standalone.perform(get("/cars/{id}", 1L))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("Last-Modified"))
+                .andReturn().getResponse().getHeader("ETag");
+        standalone.perform(get("/cars/{id}", 1L).header("If-None-Match", etag))
+                .andExpect(status().isNotModified());
+    }
+
+    /**
+     * Tests that a negative enrichment period is rejected at startup.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void negativeFreshnessIsRejected() {
+        new CarController(carService, assembler, objectMapper, -1);
     }
 
     /**
@@ -149,6 +354,58 @@ public class CarControllerTest {
                 .andExpect(MockMvcResultMatchers.jsonPath("$.id").value(1));
     }
 
+    /**
+     * Tests that an update based on a stale version is rejected with 409.
+     *
+     * @throws Exception if the update operation of a vehicle fails
+     */
+    @Test
+    public void updateStaleCar() throws Exception {
+        given(carService.save(any())).willThrow(new CarConflictException(CAR_CONFLICT));
+        Car car = getCar();
+        car.setVersion(0L);
+        mvc.perform(put("/cars/{id}", 1L).content(json.write(car).getJson()).contentType(MediaType.APPLICATION_JSON_UTF8))
+                .andDo(print())
+                .andExpect(status().isConflict());
+    }
+
+    /**
+     * Tests that the export streams every vehicle as newline-delimited
+     * JSON, one complete JSON object per line.
+     *
+     * @throws Exception if the export of the vehicle list fails
+     */
+    @Test
+    public void exportCars() throws Exception {
+        willAnswer(invocation -> {
+            Consumer<Car> sink = invocation.getArgument(0);
+            for (long id = 1; id <= 3; id++) {
+                Car car = getCar();
+                car.setId(id);
+                sink.accept(car);
+            }
+            return null;
+        }).given(carService).export(any());
+
+        MvcResult result = mvc.perform(get("/cars/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+        String body = mvc.perform(asyncDispatch(result))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(NDJSON_VALUE))
+                .andReturn().getResponse().getContentAsString();
+
+        assertTrue(body.endsWith("\n"));
+        String[] lines = body.split("\n");
+        assertEquals(3, lines.length);
+        for (int i = 0; i < lines.length; i++) {
+            JsonNode car = objectMapper.readTree(lines[i]);
+            assertTrue(car.isObject());
+            assertEquals(i + 1, car.get("id").asLong());
+            assertEquals(32280, car.get("details").get("mileage").asInt());
+        }
+    }
+
     /**
      * Creates an example Car object for use in testing.
      *
@@ -0,0 +1,184 @@
+package com.udacity.vehicles.client;
+
+import org.junit.After;
+import org.junit.Test;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * Implements testing of the SingleFlight class.
+ */
+public class SingleFlightTest {
+
+    private final SingleFlight<Long, String> flight = new SingleFlight<>();
+
+    private final AtomicInteger calls = new AtomicInteger();
+
+    private final ExecutorService subscribers = Executors.newFixedThreadPool(8);
+
+    @After
+    public void tearDown() {
+        subscribers.shutdownNow();
+    }
+
+    /**
+     * Tests that lookups made concurrently, from many threads, before the
+     * call completes share a single upstream call and its result.
+     */
+    @Test
+    public void concurrentLookupsMakeOneCall() throws Exception {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        List<Future<CompletableFuture<String>>> submitted = new ArrayList<>();
+        for (int i = 0; i < 32; i++) {
+            submitted.add(subscribers.submit(() -> flight.execute(1L, counted(upstream)).toFuture()));
+        }
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (Future<CompletableFuture<String>> subscribed : submitted) {
+            results.add(subscribed.get(5, TimeUnit.SECONDS));
+        }
+
+        upstream.onNext("$10,000.00");
+
+        for (CompletableFuture<String> result : results) {
+            assertEquals("$10,000.00", result.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Tests that a completed call frees its key, so the next lookup makes
+     * a new call instead of reusing the old result.
+     */
+    @Test
+    public void nextLookupAfterCompletionMakesNewCall() {
+        assertEquals("first", flight.execute(1L, counted(Mono.just("first"))).block());
+        assertEquals(0, flight.size());
+
+        assertEquals("second", flight.execute(1L, counted(Mono.just("second"))).block());
+        assertEquals(2, calls.get());
+        assertEquals(0, flight.size());
+    }
+
+    /**
+     * Tests that the key is freed before the result reaches the lookups,
+     * so a caller that looks up again on getting it makes a new call.
+     */
+    @Test
+    public void keyIsFreedBeforeResultIsPassedOn() {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        AtomicInteger inFlightOnResult = new AtomicInteger(-1);
+        flight.execute(1L, counted(upstream)).subscribe(result -> inFlightOnResult.set(flight.size()));
+
+        upstream.onNext("$10,000.00");
+
+        assertEquals(0, inFlightOnResult.get());
+    }
+
+    /**
+     * Tests that a failed call frees its key, so the next lookup retries
+     * instead of getting the old error.
+     */
+    @Test
+    public void nextLookupAfterErrorMakesNewCall() {
+        try {
+            flight.execute(1L, counted(Mono.error(new IllegalStateException("pricing down")))).block();
+            fail("the error of the call was not passed on");
+        } catch (IllegalStateException expected) {
+            assertEquals("pricing down", expected.getMessage());
+        }
+        assertEquals(0, flight.size());
+
+        assertEquals("recovered", flight.execute(1L, counted(Mono.just("recovered"))).block());
+        assertEquals(2, calls.get());
+    }
+
+    /**
+     * Tests that every lookup that joined a call gets its error.
+     */
+    @Test
+    public void errorIsSharedByAllJoiners() throws Exception {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        List<CompletableFuture<String>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(flight.execute(1L, counted(upstream)).toFuture());
+        }
+        IllegalStateException error = new IllegalStateException("pricing down");
+
+        upstream.onError(error);
+
+        for (CompletableFuture<String> result : results) {
+            try {
+                result.get(5, TimeUnit.SECONDS);
+                fail("a joiner did not get the error of the call");
+            } catch (ExecutionException expected) {
+                assertSame(error, expected.getCause());
+            }
+        }
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Tests that a lookup that cancels leaves the call running for the
+     * lookups still waiting on it.
+     */
+    @Test
+    public void cancelledLookupDoesNotCancelCall() throws Exception {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        AtomicBoolean cancelled = new AtomicBoolean();
+        Mono<String> call = upstream.doOnCancel(() -> cancelled.set(true));
+
+        Disposable first = flight.execute(1L, counted(call)).subscribe();
+        CompletableFuture<String> second = flight.execute(1L, counted(call)).toFuture();
+        first.dispose();
+
+        assertFalse(cancelled.get());
+        assertEquals(1, flight.size());
+        upstream.onNext("$10,000.00");
+        assertEquals("$10,000.00", second.get(5, TimeUnit.SECONDS));
+        assertFalse(cancelled.get());
+        assertEquals(1, calls.get());
+    }
+
+    /**
+     * Tests that lookups of different keys do not share a call.
+     */
+    @Test
+    public void differentKeysMakeSeparateCalls() {
+        MonoProcessor<String> upstream = MonoProcessor.create();
+        flight.execute(1L, counted(upstream)).subscribe();
+        flight.execute(2L, counted(upstream)).subscribe();
+
+        assertEquals(2, calls.get());
+        assertEquals(2, flight.size());
+        upstream.onNext("$10,000.00");
+        assertEquals(0, flight.size());
+    }
+
+    /**
+     * @return a call to the given upstream that counts how often it is made
+     */
+    private Supplier<Mono<String>> counted(Mono<String> upstream) {
+        return () -> {
+            calls.incrementAndGet();
+            return upstream;
+        };
+    }
+}
@@ -0,0 +1,303 @@
+package com.udacity.vehicles.client.maps;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import com.udacity.vehicles.domain.Location;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the address lookups of MapsClient against a
+ * local server standing in for the maps service.
+ */
+public class MapsClientTest {
+
+    private static final int SERVER_MAX_BATCH_SIZE = 3;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final List<String> lookups = new CopyOnWriteArrayList<>();
+
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+
+    /**
+     * Status the server answers single lookups with; 200 gets an address.
+     */
+    private volatile int lookupStatus = 200;
+
+    /**
+     * How long the server takes to answer each single lookup.
+     */
+    private volatile long lookupDelayMillis;
+
+    /**
+     * Number of addresses the server leaves off the end of each batch reply.
+     */
+    private volatile int droppedAddresses;
+
+    private HttpServer server;
+
+    /**
+     * Starts a server that answers each location with the street
+     * "lat,lon", as sent. Batches come back in order, and batches of more
+     * than SERVER_MAX_BATCH_SIZE locations are rejected with 400, as the
+     * maps service does. The last droppedAddresses addresses are left
+     * out of each batch reply.
+     */
+    @Before
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/maps/", exchange -> {
+            Map<String, String> query = new HashMap<>();
+            for (String parameter : exchange.getRequestURI().getQuery().split("&")) {
+                query.put(parameter.substring(0, parameter.indexOf('=')), parameter.substring(parameter.indexOf('=') + 1));
+            }
+            String street = query.get("lat") + "," + query.get("lon");
+            lookups.add(street);
+            try {
+                Thread.sleep(lookupDelayMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            if (lookupStatus != 200) {
+                exchange.sendResponseHeaders(lookupStatus, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("{\"address\":\"" + street + "\",\"city\":\"Springfield\",\"state\":\"IL\",\"zip\":\"62701\"}")
+                    .getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.createContext("/maps/batch", exchange -> {
+            JsonNode locations;
+            try (InputStream in = exchange.getRequestBody()) {
+                locations = objectMapper.readTree(in);
+            }
+            batchSizes.add(locations.size());
+            if (locations.size() > SERVER_MAX_BATCH_SIZE) {
+                exchange.sendResponseHeaders(400, -1);
+                exchange.close();
+                return;
+            }
+            List<String> addresses = new ArrayList<>();
+            for (JsonNode location : locations) {
+                addresses.add("{\"address\":\"" + location.get("lat").asText() + "," + location.get("lon").asText()
+                        + "\",\"city\":\"Springfield\",\"state\":\"IL\",\"zip\":\"62701\"}");
+            }
+            addresses = addresses.subList(0, Math.max(0, addresses.size() - droppedAddresses));
+            byte[] body = ("[" + String.join(",", addresses) + "]").getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Tests that locations rounding to the same "maps.cache.precision"
+     * decimal places share one lookup, that a location rounding elsewhere
+     * is looked up, and that the cache publishes its hits and misses.
+     */
+    @Test
+    public void getAddressIsCachedByRoundedLocation() {
+        MapsClient mapsClient = mapsClient(2);
+
+        Location first = mapsClient.getAddress(new Location(40.730610, -73.935242));
+        Location same = mapsClient.getAddress(new Location(40.730610, -73.935242));
+        Location near = mapsClient.getAddress(new Location(40.730614, -73.935238));
+
+        assertEquals(1, lookups.size());
+        assertEquals("40.73061,-73.935242", first.getAddress());
+        assertEquals(first.getAddress(), same.getAddress());
+        assertEquals(first.getAddress(), near.getAddress());
+        assertEquals("Springfield", near.getCity());
+
+        Location moved = mapsClient.getAddress(new Location(40.7307, -73.9352));
+
+        assertEquals(2, lookups.size());
+        assertEquals("40.7307,-73.9352", moved.getAddress());
+        assertEquals(2, cacheGets("hit"), 0);
+        assertEquals(2, cacheGets("miss"), 0);
+    }
+
+    /**
+     * Tests that a failed lookup leaves the location without an address
+     * and is not cached, so the next lookup asks the maps service again.
+     */
+    @Test
+    public void failedLookupIsNotCached() {
+        MapsClient mapsClient = mapsClient(2);
+        lookupStatus = 503;
+
+        assertNull(mapsClient.getAddress(new Location(1.5, 10.5)).getAddress());
+
+        lookupStatus = 200;
+        assertEquals("1.5,10.5", mapsClient.getAddress(new Location(1.5, 10.5)).getAddress());
+        assertEquals(2, lookups.size());
+    }
+
+    /**
+     * Tests that lookups of locations sharing a cache key, made while a
+     * lookup for that key is in flight, share that lookup, and that each
+     * caller gets the address on its own location.
+     */
+    @Test
+    public void concurrentGetAddressMakesOneLookup() {
+        lookupDelayMillis = 200;
+        MapsClient mapsClient = mapsClient(2);
+        List<Location> locations = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            locations.add(new Location(40.730610 + i * 0.000001, -73.935242));
+        }
+
+        List<Location> found = Flux.fromIterable(locations)
+                .flatMapSequential(mapsClient::getAddressAsync)
+                .collectList()
+                .block();
+
+        assertEquals(1, lookups.size());
+        for (int i = 0; i < locations.size(); i++) {
+            assertSame(locations.get(i), found.get(i));
+            assertEquals(lookups.get(0), found.get(i).getAddress());
+        }
+    }
+
+    /**
+     * Tests that a cache precision whose scaled coordinates would not fit
+     * in the cache key is rejected.
+     */
+    @Test(expected = IllegalArgumentException.class)
+    public void precisionAboveSevenIsRejected() {
+        new MapsClient(WebClient.create(), meterRegistry, CircuitBreaker.ofDefaults("maps"),
+                Bulkhead.ofDefaults("maps"), 2000, 2, 8, 100, 60);
+    }
+
+    /**
+     * Tests that locations are sent in chunks of at most "maps.batch-size",
+     * each location sent once however often it occurs, and that every
+     * location gets its own address back, in the order given.
+     */
+    @Test
+    public void getAddressesInRequestOrder() {
+        List<Location> locations = Arrays.asList(
+                new Location(1.5, 10.5), new Location(2.5, 20.5), new Location(3.5, 30.5),
+                new Location(1.5, 10.5), new Location(4.5, 40.5), new Location(5.5, 50.5));
+
+        List<Location> found = mapsClient(2).getAddresses(locations);
+
+        assertEquals(locations.size(), found.size());
+        for (int i = 0; i < locations.size(); i++) {
+            Location location = found.get(i);
+            assertSame(locations.get(i), location);
+            assertEquals(location.getLat() + "," + location.getLon(), location.getAddress());
+            assertEquals("Springfield", location.getCity());
+        }
+        assertEquals(3, batchSizes.size());
+        assertTrue(batchSizes.stream().allMatch(size -> size <= 2));
+        assertEquals(5, batchSizes.stream().mapToInt(Integer::intValue).sum());
+    }
+
+    /**
+     * Tests that an empty list is answered without calling the maps service.
+     */
+    @Test
+    public void getAddressesOfEmptyList() {
+        assertTrue(mapsClient(2).getAddresses(Collections.emptyList()).isEmpty());
+        assertTrue(batchSizes.isEmpty());
+    }
+
+    /**
+     * Tests that when the maps service rejects a batch as too large, the
+     * locations are returned unchanged rather than failing the lookup.
+     */
+    @Test
+    public void getAddressesOfRejectedBatch() {
+        List<Location> locations = Arrays.asList(
+                new Location(1.5, 10.5), new Location(2.5, 20.5), new Location(3.5, 30.5), new Location(4.5, 40.5));
+
+        List<Location> found = mapsClient(SERVER_MAX_BATCH_SIZE + 1).getAddresses(locations);
+
+        assertEquals(Collections.singletonList(SERVER_MAX_BATCH_SIZE + 1), batchSizes);
+        assertEquals(locations, found);
+        for (Location location : found) {
+            assertNull(location.getAddress());
+        }
+    }
+
+    /**
+     * Tests that a reply with fewer addresses than locations is not
+     * matched up partially: the whole chunk falls back to the locations
+     * unchanged, nothing is cached, and the call is timed as a fallback.
+     */
+    @Test
+    public void getAddressesOfShortReply() {
+        droppedAddresses = 1;
+        List<Location> locations = Arrays.asList(
+                new Location(1.5, 10.5), new Location(2.5, 20.5), new Location(3.5, 30.5));
+        MapsClient mapsClient = mapsClient(SERVER_MAX_BATCH_SIZE);
+
+        List<Location> found = mapsClient.getAddresses(locations);
+
+        assertEquals(locations, found);
+        for (Location location : found) {
+            assertNull(location.getAddress());
+        }
+        assertEquals(1, meterRegistry.get("maps.client.requests")
+                .tags("method", "getAddresses", "outcome", "fallback").timer().count());
+
+        droppedAddresses = 0;
+        mapsClient.getAddresses(locations);
+        assertEquals(Arrays.asList(SERVER_MAX_BATCH_SIZE, SERVER_MAX_BATCH_SIZE), batchSizes);
+        assertEquals("1.5,10.5", locations.get(0).getAddress());
+    }
+
+    private double cacheGets(String result) {
+        return meterRegistry.get("cache.gets").tags("cache", "maps.address", "result", result)
+                .functionCounter().count();
+    }
+
+    private MapsClient mapsClient(int batchSize) {
+        WebClient maps = WebClient.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort())
+                .build();
+        return new MapsClient(maps, meterRegistry, CircuitBreaker.ofDefaults("maps"),
+                Bulkhead.ofDefaults("maps"), 2000, batchSize, 4, 100, 60);
+    }
+}
@@ -0,0 +1,173 @@
+package com.udacity.vehicles.client.prices;
+
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+
+/**
+ * Implements testing of the price lookups of PriceClient against a
+ * stubbed pricing service.
+ */
+public class PriceClientTest {
+
+    private final List<String> requests = new CopyOnWriteArrayList<>();
+
+    /**
+     * How long the pricing service takes to answer each request.
+     */
+    private volatile long delayMillis;
+
+    private PriceClient priceClient;
+
+    @Before
+    public void setup() {
+        priceClient = priceClient(300);
+    }
+
+    /**
+     * Tests that a cached price is served without a remote call until
+     * "pricing.cache.ttl-seconds" have passed since it was stored.
+     */
+    @Test
+    public void getPriceIsCachedUntilTtl() throws Exception {
+        PriceClient priceClient = priceClient(1);
+
+        assertEquals("USD 100", priceClient.getPrice(1L));
+        assertEquals("USD 100", priceClient.getPrice(1L));
+        assertEquals(1, requests.size());
+
+        Thread.sleep(1100);
+
+        assertEquals("USD 100", priceClient.getPrice(1L));
+        assertEquals(2, requests.size());
+    }
+
+    /**
+     * Tests that a bulk lookup only asks the pricing service for the
+     * vehicles whose price is not cached.
+     */
+    @Test
+    public void getPricesRequestsOnlyUncachedVehicles() {
+        priceClient.getPrice(1L);
+
+        Map<Long, String> found = priceClient.getPrices(new HashSet<>(Arrays.asList(1L, 2L, 3L)));
+
+        assertEquals(3, found.size());
+        assertEquals("USD 100", found.get(1L));
+        assertEquals("USD 300", found.get(3L));
+        assertEquals(Arrays.asList("vehicleId=1", "vehicleList=2&vehicleList=3"), requests);
+    }
+
+    /**
+     * Tests that every subscription to one lookup gets a map of its own,
+     * so one caller changing its result does not change another's, and
+     * that a later subscription is served from the cache.
+     */
+    @Test
+    public void getPricesBuildsMapPerSubscription() {
+        Mono<Map<Long, String>> lookup = priceClient.getPricesAsync(new HashSet<>(Arrays.asList(1L, 2L)));
+
+        Map<Long, String> first = lookup.block();
+        first.put(3L, "USD 300");
+        Map<Long, String> second = lookup.block();
+
+        assertNotSame(first, second);
+        assertEquals(2, second.size());
+        assertEquals("USD 100", second.get(1L));
+        assertEquals("USD 200", second.get(2L));
+        assertEquals(1, requests.size());
+    }
+
+    /**
+     * Tests that deleting a price evicts it from the cache, so the next
+     * lookup asks the pricing service again.
+     */
+    @Test
+    public void deletePriceEvictsCachedPrice() {
+        priceClient.getPrice(1L);
+        priceClient.deletePrice(1L);
+        priceClient.getPrice(1L);
+
+        assertEquals(Arrays.asList("vehicleId=1", "vehicleId=1", "vehicleId=1"), requests);
+    }
+
+    /**
+     * Tests that lookups of one uncached price made while a call for it is
+     * in flight share that call and its result.
+     */
+    @Test
+    public void concurrentGetPriceMakesOneCall() {
+        delayMillis = 200;
+
+        List<String> found = Flux.range(0, 8)
+                .flatMap(i -> priceClient.getPriceAsync(5L))
+                .collectList()
+                .block();
+
+        assertEquals(Collections.nCopies(8, "USD 500"), found);
+        assertEquals(Collections.singletonList("vehicleId=5"), requests);
+    }
+
+    /**
+     * Creates a client whose pricing service prices every vehicle it is
+     * asked for at 100 times its ID, and records the query of every request.
+     */
+    private PriceClient priceClient(long ttlSeconds) {
+        WebClient pricing = WebClient.builder()
+                .exchangeFunction(request -> {
+                    String query = request.url().getQuery();
+                    requests.add(query);
+                    if (request.method() == HttpMethod.DELETE) {
+                        return Mono.just(ClientResponse.create(HttpStatus.OK).body("Deleted").build());
+                    }
+                    List<String> prices = ids(request).stream()
+                            .map(id -> "{\"vehicleId\":" + id + ",\"currency\":\"USD\",\"price\":" + id + "00}")
+                            .collect(Collectors.toList());
+                    String body = request.url().getPath().endsWith("/getPrices")
+                            ? prices.stream().collect(Collectors.joining(",", "[", "]"))
+                            : prices.get(0);
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build())
+                            .delayElement(Duration.ofMillis(delayMillis));
+                })
+                .build();
+        return new PriceClient(pricing, new SimpleMeterRegistry(), CircuitBreaker.ofDefaults("pricing"),
+                Bulkhead.ofDefaults("pricing"), 2000, 200, 100, ttlSeconds);
+    }
+
+    private static List<String> ids(ClientRequest request) {
+        String query = request.url().getQuery();
+        if (query == null) {
+            return Collections.emptyList();
+        }
+        return Arrays.stream(query.split("&"))
+                .map(parameter -> parameter.substring(parameter.indexOf('=') + 1))
+                .sorted()
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,135 @@
+package com.udacity.vehicles.config;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import io.netty.handler.timeout.ReadTimeoutException;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Exceptions;
+
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Implements testing of the PooledConnector class against a local server.
+ */
+public class PooledConnectorTest {
+
+    private static final long READ_TIMEOUT_MILLIS = 300;
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private HttpServer server;
+
+    private WebClient client;
+
+    /**
+     * Starts a server that answers the first request at once and every
+     * later one only after the read timeout, and drops the connection of
+     * any request to "/drop" without answering; and a client with a pool
+     * of a single connection, so every request after the first reuses it.
+     */
+    @Before
+    public void setup() throws Exception {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/drop", exchange -> exchange.close());
+        server.createContext("/", exchange -> {
+            if (requests.incrementAndGet() > 1) {
+                try {
+                    Thread.sleep(READ_TIMEOUT_MILLIS * 5);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+
+        PooledConnector connector = new PooledConnector("test",
+                new PooledConnector.Settings(1, 1000, 1000, READ_TIMEOUT_MILLIS), meterRegistry);
+        client = WebClient.builder()
+                .baseUrl("http://localhost:" + server.getAddress().getPort())
+                .clientConnector(connector.connector())
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    /**
+     * Tests that the read timeout still applies to a request sent over a
+     * connection reused from the pool, not only to the first one.
+     */
+    @Test
+    public void readTimeoutAppliesToReusedConnection() {
+        assertEquals("ok", client.get().uri("/").retrieve().bodyToMono(String.class).block());
+
+        long started = System.nanoTime();
+        try {
+            client.get().uri("/").retrieve().bodyToMono(String.class).block();
+            fail("a slow response on a reused connection did not time out");
+        } catch (RuntimeException ex) {
+            assertTrue(Exceptions.unwrap(ex) instanceof ReadTimeoutException);
+        }
+        assertTrue((System.nanoTime() - started) / 1_000_000 < READ_TIMEOUT_MILLIS * 5);
+        assertEquals(2, requests.get());
+        awaitPool(0, 0);
+    }
+
+    /**
+     * Tests that a leased connection the server drops mid-request, which
+     * is closed without ever being released, stops counting as active,
+     * and that the pool then opens a new connection for the next request.
+     */
+    @Test
+    public void droppedLeasedConnectionIsNotActive() {
+        assertEquals("ok", client.get().uri("/").retrieve().bodyToMono(String.class).block());
+        awaitPool(0, 1);
+
+        try {
+            client.get().uri("/drop").retrieve().bodyToMono(String.class).block();
+            fail("a request whose connection was dropped succeeded");
+        } catch (RuntimeException expected) {
+            // expected
+        }
+        awaitPool(0, 0);
+
+        requests.set(-1);
+        assertEquals("ok", client.get().uri("/").retrieve().bodyToMono(String.class).block());
+        awaitPool(0, 1);
+    }
+
+    /**
+     * Waits for the pool gauges to settle on the given values, as they
+     * follow connection events that arrive after the response.
+     */
+    private void awaitPool(double active, double idle) {
+        long deadline = System.currentTimeMillis() + 2000;
+        while (System.currentTimeMillis() < deadline
+                && (gauge("http.client.pool.active") != active || gauge("http.client.pool.idle") != idle)) {
+            Thread.yield();
+        }
+        assertEquals(active, gauge("http.client.pool.active"), 0);
+        assertEquals(idle, gauge("http.client.pool.idle"), 0);
+    }
+
+    private double gauge(String name) {
+        return meterRegistry.get(name).tag("client", "test").gauge().value();
+    }
+}
@@ -0,0 +1,140 @@
+package com.udacity.vehicles.config;
+
+import com.udacity.vehicles.client.prices.PriceClient;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.udacity.vehicles.constants.ApplicationConstants.PRICE_UNAVAILABLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Implements testing of the circuit breaker and bulkhead declared by
+ * ResilienceConfig, as seen through PriceClient calls to a stubbed pricing
+ * service. The breaker considers the last 10 calls and opens when half of
+ * them failed.
+ */
+public class ResilienceConfigTest {
+
+    private static final int WINDOW_SIZE = 10;
+    private static final long TIMEOUT_MS = 100;
+
+    private final ResilienceConfig config = new ResilienceConfig();
+
+    private final CircuitBreaker circuitBreaker = config.pricingCircuitBreaker(50, WINDOW_SIZE, 60000, 500);
+
+    private final AtomicInteger requests = new AtomicInteger();
+
+    private volatile HttpStatus status = HttpStatus.OK;
+
+    private volatile long delayMillis;
+
+    /**
+     * Tests that 5xx responses open the breaker, and that while it is open
+     * calls get the fallback without reaching the pricing service.
+     */
+    @Test
+    public void serverErrorsOpenBreaker() {
+        PriceClient priceClient = priceClient(config.pricingBulkhead(100));
+        status = HttpStatus.SERVICE_UNAVAILABLE;
+
+        for (long vehicleId = 1; vehicleId <= WINDOW_SIZE; vehicleId++) {
+            assertEquals(PRICE_UNAVAILABLE, priceClient.getPrice(vehicleId));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        status = HttpStatus.OK;
+        assertEquals(PRICE_UNAVAILABLE, priceClient.getPrice(100L));
+        assertEquals(WINDOW_SIZE, requests.get());
+    }
+
+    /**
+     * Tests that calls outlasting the client timeout open the breaker.
+     */
+    @Test
+    public void timeoutsOpenBreaker() {
+        PriceClient priceClient = priceClient(config.pricingBulkhead(100));
+        delayMillis = TIMEOUT_MS * 3;
+
+        for (long vehicleId = 1; vehicleId <= WINDOW_SIZE; vehicleId++) {
+            assertEquals(PRICE_UNAVAILABLE, priceClient.getPrice(vehicleId));
+        }
+
+        assertEquals(CircuitBreaker.State.OPEN, circuitBreaker.getState());
+        assertEquals(WINDOW_SIZE, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+    }
+
+    /**
+     * Tests that 4xx responses, such as a vehicle without a price, are
+     * answers rather than failures and leave the breaker closed.
+     */
+    @Test
+    public void clientErrorsLeaveBreakerClosed() {
+        PriceClient priceClient = priceClient(config.pricingBulkhead(100));
+        status = HttpStatus.NOT_FOUND;
+
+        for (long vehicleId = 1; vehicleId <= WINDOW_SIZE * 2; vehicleId++) {
+            assertEquals(PRICE_UNAVAILABLE, priceClient.getPrice(vehicleId));
+        }
+
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+        assertEquals(WINDOW_SIZE * 2, requests.get());
+    }
+
+    /**
+     * Tests that calls rejected by a full bulkhead get the fallback straight
+     * away, without counting against the health of the pricing service.
+     */
+    @Test
+    public void bulkheadRejectionsLeaveBreakerClosed() {
+        PriceClient priceClient = priceClient(config.pricingBulkhead(1));
+        delayMillis = TIMEOUT_MS / 2;
+
+        List<String> found = Flux.range(1, WINDOW_SIZE * 2)
+                .flatMap(vehicleId -> priceClient.getPriceAsync((long) vehicleId))
+                .collectList()
+                .block();
+
+        assertEquals(1, requests.get());
+        assertEquals(WINDOW_SIZE * 2 - 1, found.stream().filter(PRICE_UNAVAILABLE::equals).count());
+        assertEquals(CircuitBreaker.State.CLOSED, circuitBreaker.getState());
+        assertEquals(0, circuitBreaker.getMetrics().getNumberOfFailedCalls());
+        assertTrue(circuitBreaker.getMetrics().getNumberOfSuccessfulCalls() <= 1);
+    }
+
+    /**
+     * Creates a client whose pricing service answers every vehicle with
+     * the current status after the current delay, and prices it at 100
+     * times its ID when the status is 200.
+     */
+    private PriceClient priceClient(Bulkhead bulkhead) {
+        WebClient pricing = WebClient.builder()
+                .exchangeFunction(request -> Mono.delay(Duration.ofMillis(delayMillis)).map(tick -> {
+                    requests.incrementAndGet();
+                    if (status != HttpStatus.OK) {
+                        return ClientResponse.create(status).build();
+                    }
+                    String id = request.url().getQuery().replace("vehicleId=", "");
+                    return ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body("{\"vehicleId\":" + id + ",\"currency\":\"USD\",\"price\":" + id + "00}")
+                            .build();
+                }))
+                .build();
+        return new PriceClient(pricing, new SimpleMeterRegistry(), circuitBreaker, bulkhead, TIMEOUT_MS, 200, 100, 300);
+    }
+}
@@ -0,0 +1,104 @@
+package com.udacity.vehicles.domain.car;
+
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import com.udacity.vehicles.domain.manufacturer.ManufacturerRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mapping.PropertyReferenceException;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Implements testing of the keyset and offset page queries of
+ * CarRepository against the H2 database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CarRepositoryTest {
+
+    @Autowired
+    private CarRepository repository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    private final List<Long> ids = new ArrayList<>();
+
+    /**
+     * Stores five cars, whose IDs follow each other.
+     */
+    @Before
+    public void setup() {
+        manufacturerRepository.save(new Manufacturer(101, "Chevrolet"));
+        for (int i = 0; i < 5; i++) {
+            ids.add(repository.save(getCar()).getId());
+        }
+    }
+
+    @After
+    public void tearDown() {
+        ids.forEach(repository::deleteById);
+    }
+
+    /**
+     * Tests that keyset pages hold the cars right after or right before
+     * the cursor, nearest first, whatever the page size.
+     */
+    @Test
+    public void keysetPagesStartAtCursor() {
+        assertEquals(ids.subList(0, 2), ids(repository.findByIdGreaterThanOrderByIdAsc(ids.get(0) - 1, PageRequest.of(0, 2))));
+        assertEquals(ids.subList(2, 5), ids(repository.findByIdGreaterThanOrderByIdAsc(ids.get(1), PageRequest.of(0, 3))));
+        assertEquals(Arrays.asList(ids.get(3), ids.get(2)),
+                ids(repository.findByIdLessThanOrderByIdDesc(ids.get(4), PageRequest.of(0, 2))));
+    }
+
+    /**
+     * Tests that sorting by a property cars do not have is rejected.
+     */
+    @Test(expected = PropertyReferenceException.class)
+    public void sortByUnknownProperty() {
+        repository.findAll(PageRequest.of(0, 20, Sort.by("colour")));
+    }
+
+    private static List<Long> ids(List<Car> cars) {
+        return cars.stream().map(Car::getId).collect(Collectors.toList());
+    }
+
+    /**
+     * Creates an example Car object for use in testing.
+     *
+     * @return an example Car object
+     */
+    private Car getCar() {
+        Car car = new Car();
+        car.setLocation(new Location(40.730610, -73.935242));
+        Details details = new Details();
+        details.setManufacturer(new Manufacturer(101, "Chevrolet"));
+        details.setModel("Impala");
+        details.setMileage(32280);
+        details.setExternalColor("white");
+        details.setBody("sedan");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        car.setCondition(Condition.USED);
+        return car;
+    }
+}
@@ -0,0 +1,127 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static com.udacity.vehicles.constants.ApplicationConstants.PRICE_UNAVAILABLE;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.mock;
+
+/**
+ * Implements testing of the price and address enrichment of a car in
+ * CarService, with the real clients in front of stubbed pricing and maps
+ * services.
+ */
+public class CarServiceEnrichmentTest {
+
+    private static final long DELAY_MS = 500;
+
+    private final CarRepository repository = mock(CarRepository.class);
+
+    private Car car;
+
+    @Before
+    public void setup() {
+        car = new Car();
+        car.setId(1L);
+        car.setLocation(new Location(40.730610, -73.935242));
+        given(repository.findById(1L)).willReturn(Optional.of(car));
+    }
+
+    /**
+     * Tests that the price and address lookups run concurrently, so a car
+     * whose pricing and maps services both take DELAY_MS is enriched in
+     * about DELAY_MS rather than twice that, and that the failed address
+     * lookup falls back to the bare location without losing the price.
+     */
+    @Test
+    public void lookupsRunConcurrently() {
+        CarService carService = carService(delayed(priceFound()), delayed(serverError()), 2000, 3000);
+
+        long start = System.nanoTime();
+        Car found = carService.findById(1L);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals("USD 100", found.getPrice());
+        assertNull(found.getLocation().getAddress());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= DELAY_MS);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 2 * DELAY_MS);
+    }
+
+    /**
+     * Tests that a lookup that outlives "cars.enrich.timeout-ms" is given
+     * up on even when its client would wait longer, and falls back to its
+     * default value.
+     */
+    @Test
+    public void lookupsAreBoundedByEnrichTimeout() {
+        CarService carService = carService(delayed(priceFound()), request -> Mono.never(), 10000, 2 * DELAY_MS);
+
+        long start = System.nanoTime();
+        Car found = carService.findById(1L);
+        long elapsedMillis = Duration.ofNanos(System.nanoTime() - start).toMillis();
+
+        assertEquals("USD 100", found.getPrice());
+        assertNull(found.getLocation().getAddress());
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis >= 2 * DELAY_MS);
+        assertTrue("took " + elapsedMillis + "ms", elapsedMillis < 4 * DELAY_MS);
+    }
+
+    /**
+     * Tests that a price lookup that outlives "cars.enrich.timeout-ms"
+     * falls back to the price placeholder.
+     */
+    @Test
+    public void slowPriceFallsBack() {
+        CarService carService = carService(request -> Mono.never(), delayed(serverError()), 10000, 2 * DELAY_MS);
+
+        assertEquals(PRICE_UNAVAILABLE, carService.findById(1L).getPrice());
+    }
+
+    private CarService carService(ExchangeFunction pricing, ExchangeFunction maps, long clientTimeoutMillis,
+                                  long enrichTimeoutMillis) {
+        PriceClient priceClient = new PriceClient(WebClient.builder().exchangeFunction(pricing).build(),
+                new SimpleMeterRegistry(), CircuitBreaker.ofDefaults("pricing"), Bulkhead.ofDefaults("pricing"),
+                clientTimeoutMillis, 200, 100, 300);
+        MapsClient mapsClient = new MapsClient(WebClient.builder().exchangeFunction(maps).build(),
+                new SimpleMeterRegistry(), CircuitBreaker.ofDefaults("maps"), Bulkhead.ofDefaults("maps"),
+                clientTimeoutMillis, 500, 4, 100, 60);
+        return new CarService(repository, mapsClient, priceClient, null, 3, enrichTimeoutMillis);
+    }
+
+    private static ExchangeFunction delayed(ExchangeFunction stub) {
+        return request -> Mono.delay(Duration.ofMillis(DELAY_MS)).then(stub.exchange(request));
+    }
+
+    private static ExchangeFunction priceFound() {
+        return request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                .body("{\"vehicleId\":1,\"currency\":\"USD\",\"price\":100}")
+                .build());
+    }
+
+    private static ExchangeFunction serverError() {
+        return request -> Mono.just(ClientResponse.create(HttpStatus.INTERNAL_SERVER_ERROR).build());
+    }
+}
@@ -0,0 +1,356 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.Details;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import com.udacity.vehicles.domain.manufacturer.ManufacturerRepository;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Implements testing of the optimistic update of cars in CarService,
+ * against the H2 database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class CarServiceTest {
+
+    private static final int MAX_RETRIES = 3;
+
+    @Autowired
+    private CarRepository repository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    private Car stored;
+
+    /**
+     * Stores the car every test updates.
+     */
+    @Before
+    public void setup() {
+        manufacturerRepository.save(new Manufacturer(101, "Chevrolet"));
+        stored = repository.save(getCar());
+    }
+
+    /**
+     * Tests that an update based on the version the caller read succeeds
+     * and moves the version on.
+     */
+    @Test
+    public void updateWithCurrentVersion() {
+        CarService carService = carService(repository);
+        Car update = getCar();
+        update.setId(stored.getId());
+        update.setVersion(stored.getVersion());
+        update.setCondition(Condition.NEW);
+
+        Car updated = carService.persist(update);
+
+        assertEquals(Condition.NEW, updated.getCondition());
+        assertEquals(stored.getVersion() + 1, (long) updated.getVersion());
+    }
+
+    /**
+     * Tests that an update based on a version that another write has
+     * since replaced is rejected, and leaves the stored car as it was.
+     */
+    @Test
+    public void updateWithStaleVersionConflicts() {
+        CarService carService = carService(repository);
+        Car other = repository.findById(stored.getId()).get();
+        other.setCondition(Condition.NEW);
+        repository.save(other);
+
+        Car update = getCar();
+        update.setId(stored.getId());
+        update.setVersion(stored.getVersion());
+        update.getDetails().setMileage(40000);
+        try {
+            carService.persist(update);
+            fail("an update based on a stale version was applied");
+        } catch (CarConflictException expected) {
+        }
+
+        Car current = repository.findById(stored.getId()).get();
+        assertEquals(Condition.NEW, current.getCondition());
+        assertEquals(32280, (int) current.getDetails().getMileage());
+    }
+
+    /**
+     * Tests that an update sent without a version, which races another
+     * write of a different field between reading and saving the car, is
+     * applied on top of that write instead of failing or undoing it.
+     */
+    @Test
+    public void updateWithoutVersionIsMergedAfterRace() {
+        AtomicInteger reads = new AtomicInteger();
+        CarService carService = carService(racing(reads, 1));
+        Car update = getCar();
+        update.setId(stored.getId());
+        update.getDetails().setMileage(40000);
+
+        Car updated = carService.persist(update);
+
+        assertEquals(2, reads.get());
+        assertEquals(40000, (int) updated.getDetails().getMileage());
+        Car current = repository.findById(stored.getId()).get();
+        assertEquals(40000, (int) current.getDetails().getMileage());
+        assertEquals(Condition.NEW, current.getCondition());
+        assertEquals(stored.getVersion() + 2, (long) current.getVersion());
+    }
+
+    /**
+     * Tests that an update based on the version the caller read is merged
+     * too when another write of a different field lands before it is saved.
+     */
+    @Test
+    public void updateWithCurrentVersionIsMergedAfterRace() {
+        AtomicInteger reads = new AtomicInteger();
+        CarService carService = carService(racing(reads, 1));
+        Car update = getCar();
+        update.setId(stored.getId());
+        update.setVersion(stored.getVersion());
+        update.getDetails().setExternalColor("red");
+
+        carService.persist(update);
+
+        Car current = repository.findById(stored.getId()).get();
+        assertEquals("red", current.getDetails().getExternalColor());
+        assertEquals(Condition.NEW, current.getCondition());
+    }
+
+    /**
+     * Tests that an update which races another write of the same field
+     * is rejected, and leaves the other write in place.
+     */
+    @Test
+    public void updateConflictsWithRaceOnSameField() {
+        AtomicInteger reads = new AtomicInteger();
+        CarService carService = carService(racing(reads, 1));
+        Car update = getCar();
+        update.setId(stored.getId());
+        update.setCondition(Condition.NEW);
+        update.getDetails().setMileage(40000);
+        try {
+            carService.persist(update);
+            fail("an update that raced a write of the same field was applied");
+        } catch (CarConflictException expected) {
+        }
+
+        assertEquals(2, reads.get());
+        Car current = repository.findById(stored.getId()).get();
+        assertEquals(Condition.NEW, current.getCondition());
+        assertEquals(32280, (int) current.getDetails().getMileage());
+        assertEquals(stored.getVersion() + 1, (long) current.getVersion());
+    }
+
+    /**
+     * Tests two writers that read the same version of a car and then
+     * save it at once: when they change different fields both changes
+     * are kept.
+     */
+    @Test
+    public void concurrentWritersOfDifferentFieldsAreMerged() throws Exception {
+        Car mileage = getCar();
+        mileage.setId(stored.getId());
+        mileage.getDetails().setMileage(40000);
+        Car color = getCar();
+        color.setId(stored.getId());
+        color.setVersion(stored.getVersion());
+        color.getDetails().setExternalColor("red");
+
+        List<Object> results = writeConcurrently(mileage, color);
+
+        assertTrue(results.toString(), results.stream().allMatch(Car.class::isInstance));
+        Car current = repository.findById(stored.getId()).get();
+        assertEquals(40000, (int) current.getDetails().getMileage());
+        assertEquals("red", current.getDetails().getExternalColor());
+        assertEquals(stored.getVersion() + 2, (long) current.getVersion());
+    }
+
+    /**
+     * Tests two writers that read the same version of a car and then
+     * save it at once: when they change the same field, one of them is
+     * applied whole and the other rejected.
+     */
+    @Test
+    public void concurrentWritersOfSameFieldConflict() throws Exception {
+        Car first = getCar();
+        first.setId(stored.getId());
+        first.getDetails().setMileage(40000);
+        first.getDetails().setExternalColor("red");
+        Car second = getCar();
+        second.setId(stored.getId());
+        second.getDetails().setMileage(50000);
+
+        List<Object> results = writeConcurrently(first, second);
+
+        assertEquals(results.toString(), 1, results.stream().filter(Car.class::isInstance).count());
+        assertEquals(results.toString(), 1, results.stream().filter(CarConflictException.class::isInstance).count());
+        Car current = repository.findById(stored.getId()).get();
+        if (results.get(0) instanceof Car) {
+            assertEquals(40000, (int) current.getDetails().getMileage());
+            assertEquals("red", current.getDetails().getExternalColor());
+        } else {
+            assertEquals(50000, (int) current.getDetails().getMileage());
+            assertEquals("white", current.getDetails().getExternalColor());
+        }
+        assertEquals(stored.getVersion() + 1, (long) current.getVersion());
+    }
+
+    /**
+     * Tests that an update sent without a version gives up with a
+     * conflict once every retry has raced another write.
+     */
+    @Test
+    public void updateWithoutVersionConflictsOnceRetriesRunOut() {
+        AtomicInteger reads = new AtomicInteger();
+        CarService carService = carService(racing(reads, Integer.MAX_VALUE));
+        Car update = getCar();
+        update.setId(stored.getId());
+        update.getDetails().setMileage(40000);
+        try {
+            carService.persist(update);
+            fail("an update that raced every attempt was applied");
+        } catch (CarConflictException expected) {
+        }
+
+        assertEquals(MAX_RETRIES + 1, reads.get());
+        assertEquals(32280, (int) repository.findById(stored.getId()).get().getDetails().getMileage());
+    }
+
+    /**
+     * Runs one update per thread, holding every thread after its first
+     * read of the car until all of them have read it, so that all of them
+     * start from the same version.
+     *
+     * @param updates the updates to run
+     * @return the car saved or the exception thrown by each update, in order
+     */
+    private List<Object> writeConcurrently(Car... updates) throws Exception {
+        CyclicBarrier allRead = new CyclicBarrier(updates.length);
+        AtomicInteger reads = new AtomicInteger();
+        CarService carService = carService((CarRepository) Proxy.newProxyInstance(CarRepository.class.getClassLoader(),
+                new Class<?>[]{CarRepository.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(repository, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                    if (method.getName().equals("findById") && reads.incrementAndGet() <= updates.length) {
+                        allRead.await(10, TimeUnit.SECONDS);
+                    }
+                    return result;
+                }));
+        ExecutorService writers = Executors.newFixedThreadPool(updates.length);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (Car update : updates) {
+                futures.add(writers.submit(() -> {
+                    try {
+                        return carService.persist(update);
+                    } catch (CarConflictException ex) {
+                        return ex;
+                    }
+                }));
+            }
+            List<Object> results = new ArrayList<>();
+            for (Future<Object> future : futures) {
+                results.add(future.get(30, TimeUnit.SECONDS));
+            }
+            return results;
+        } finally {
+            writers.shutdownNow();
+        }
+    }
+
+    private CarService carService(CarRepository carRepository) {
+        return new CarService(carRepository, mapsClient, priceClient, manufacturerRepository, MAX_RETRIES, 3000);
+    }
+
+    /**
+     * Wraps the repository so that another write changes the car right
+     * after each of the first "races" reads made through it, before the
+     * reader can save.
+     *
+     * @param reads counts the reads made through the wrapper
+     * @param races how many reads are followed by another write
+     * @return the wrapped repository
+     */
+    private CarRepository racing(AtomicInteger reads, int races) {
+        return (CarRepository) Proxy.newProxyInstance(CarRepository.class.getClassLoader(),
+                new Class<?>[]{CarRepository.class}, (proxy, method, args) -> {
+                    Object result;
+                    try {
+                        result = method.invoke(repository, args);
+                    } catch (InvocationTargetException ex) {
+                        throw ex.getCause();
+                    }
+                    if (method.getName().equals("findById") && reads.incrementAndGet() <= races) {
+                        Car other = repository.findById((Long) args[0]).get();
+                        other.setCondition(other.getCondition() == Condition.NEW ? Condition.USED : Condition.NEW);
+                        repository.save(other);
+                    }
+                    return result;
+                });
+    }
+
+    /**
+     * Creates an example Car object for use in testing.
+     *
+     * @return an example Car object
+     */
+    private Car getCar() {
+        Car car = new Car();
+        car.setLocation(new Location(40.730610, -73.935242));
+        Details details = new Details();
+        Manufacturer manufacturer = new Manufacturer(101, "Chevrolet");
+        details.setManufacturer(manufacturer);
+        details.setModel("Impala");
+        details.setMileage(32280);
+        details.setExternalColor("white");
+        details.setBody("sedan");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        car.setCondition(Condition.USED);
+        return car;
+    }
+}
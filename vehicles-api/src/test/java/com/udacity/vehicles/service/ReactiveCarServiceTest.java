@@ -0,0 +1,126 @@
+package com.udacity.vehicles.service;
+
+import com.udacity.vehicles.client.maps.MapsClient;
+import com.udacity.vehicles.client.prices.PriceClient;
+import com.udacity.vehicles.domain.Condition;
+import com.udacity.vehicles.domain.Location;
+import com.udacity.vehicles.domain.car.Car;
+import com.udacity.vehicles.domain.car.CarRepository;
+import com.udacity.vehicles.domain.car.Details;
+import com.udacity.vehicles.domain.manufacturer.Manufacturer;
+import com.udacity.vehicles.domain.manufacturer.ManufacturerRepository;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.junit4.SpringRunner;
+import reactor.core.publisher.Mono;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.udacity.vehicles.constants.ApplicationConstants.FAILURE;
+import static com.udacity.vehicles.constants.ApplicationConstants.SUCCESS;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Implements testing of the non-blocking delete in ReactiveCarService,
+ * against the H2 database.
+ */
+@RunWith(SpringRunner.class)
+@SpringBootTest
+public class ReactiveCarServiceTest {
+
+    @Autowired
+    private ReactiveCarService carService;
+
+    @Autowired
+    private CarRepository repository;
+
+    @Autowired
+    private ManufacturerRepository manufacturerRepository;
+
+    @MockBean
+    private PriceClient priceClient;
+
+    @MockBean
+    private MapsClient mapsClient;
+
+    /**
+     * Tests that deleting a car removes it from the repository, then
+     * deletes its price through the non-blocking client call only.
+     */
+    @Test
+    public void deleteRemovesCarThenPrice() {
+        Car stored = storeCar();
+        AtomicBoolean carGoneWhenPriceDeleted = new AtomicBoolean();
+        given(priceClient.deletePriceAsync(stored.getId())).willReturn(Mono.fromCallable(() -> {
+            carGoneWhenPriceDeleted.set(!repository.existsById(stored.getId()));
+            return SUCCESS;
+        }));
+
+        assertEquals(SUCCESS, carService.delete(stored.getId()).block());
+
+        assertFalse(repository.existsById(stored.getId()));
+        assertTrue(carGoneWhenPriceDeleted.get());
+        verify(priceClient, never()).deletePrice(anyLong());
+    }
+
+    /**
+     * Tests that a failed price delete does not fail the car delete, as
+     * the price client resolves failures to a status.
+     */
+    @Test
+    public void deleteSucceedsWhenPriceDeleteFails() {
+        Car stored = storeCar();
+        given(priceClient.deletePriceAsync(stored.getId())).willReturn(Mono.just(FAILURE));
+
+        assertEquals(SUCCESS, carService.delete(stored.getId()).block());
+
+        assertFalse(repository.existsById(stored.getId()));
+    }
+
+    /**
+     * Tests that deleting a car that does not exist signals
+     * CarNotFoundException and leaves prices alone.
+     */
+    @Test
+    public void deleteOfMissingCar() {
+        try {
+            carService.delete(Long.MAX_VALUE).block();
+            fail("deleted a car that does not exist");
+        } catch (CarNotFoundException expected) {
+            // expected
+        }
+        verify(priceClient, never()).deletePrice(anyLong());
+        verify(priceClient, never()).deletePriceAsync(anyLong());
+    }
+
+    private Car storeCar() {
+        Manufacturer manufacturer = new Manufacturer(101, "Chevrolet");
+        manufacturerRepository.save(manufacturer);
+        Car car = new Car();
+        car.setLocation(new Location(40.730610, -73.935242));
+        Details details = new Details();
+        details.setManufacturer(manufacturer);
+        details.setModel("Impala");
+        details.setMileage(32280);
+        details.setExternalColor("white");
+        details.setBody("sedan");
+        details.setEngine("3.6L V6");
+        details.setFuelType("Gasoline");
+        details.setModelYear(2018);
+        details.setProductionYear(2018);
+        details.setNumberOfDoors(4);
+        car.setDetails(details);
+        car.setCondition(Condition.USED);
+        return repository.save(car);
+    }
+}